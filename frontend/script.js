@@ -12,6 +12,7 @@ inputTextArea.addEventListener("keyup", (event) => {
 });
 
 let consoleText = "";
+let gameId = null; // ID of the game being played, given by the server when it starts
 
 async function startGame(scenario = 0) {
     clearConsole();
@@ -23,8 +24,11 @@ async function startGame(scenario = 0) {
     }
 
     try {
-        const response = await fetch(`${API_BASE_URL}/start?scenario=${scenario}`, { method: "POST" });
+        // End the game played until now, if any, rather than leave it waiting on input
+        const previous = gameId === null ? "" : `&previousGameId=${gameId}`;
+        const response = await fetch(`${API_BASE_URL}/start?scenario=${scenario}${previous}`, { method: "POST" });
         const gameState = await response.json();
+        gameId = gameState["gameId"];
         updatePage(gameState);
     } catch (error) {
         const errorText = `startGame() failed: ${error}`;
@@ -39,7 +43,7 @@ async function sendText() {
 
     try {
         console.log(`Sending '${textToSend}'...`);
-        const response = await fetch(`${API_BASE_URL}/submit?submittedText=${textToSend}`, { method: "POST" });
+        const response = await fetch(`${API_BASE_URL}/submit?gameId=${gameId}&submittedText=${textToSend}`, { method: "POST" });
         const gameState = await response.json();
         updatePage(gameState);
     } catch (error) {
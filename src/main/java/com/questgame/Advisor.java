@@ -0,0 +1,395 @@
+package com.questgame;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+// Advises a player whether to sponsor a quest, or withdraw from one, by Monte Carlo rollouts.
+// Each rollout deals the cards the player cannot see (other players' hands and the Adventure draw
+// pile) at random, then plays the rest of the quest out headlessly once per option, from the same
+// deal with the same agents, so that the options are compared on equal terms. Rollouts run in
+// parallel on a fork-join pool until the time budget is spent.
+// Only the sponsor knows the cards of the stages not fought yet, so advice for anyone else puts
+// them back with the sponsor's other cards and deals the sponsor new cards that can build those
+// stages, from which the sponsor's rollout agent builds them again.
+public class Advisor {
+    private static final long SEED_GAMMA = 0x9E3779B97F4A7C15L; // Spreads out worker seeds
+    private static final int MAX_SPONSOR_DEALS = 1000; // Hands dealt a sponsor before giving up
+
+    // A decision the advisor can help with, and what answering yes and no means for it.
+    public enum Decision {
+        SPONSOR("sponsor", "decline"), WITHDRAW("withdraw", "stay");
+
+        private final String yes;
+        private final String no;
+
+        Decision(final String yes, final String no) {
+            this.yes = yes;
+            this.no = no;
+        }
+
+        public String option(final boolean choice) {
+            return choice ? yes : no;
+        }
+    }
+
+    // A decision a player has to make now.
+    public record Question(Decision decision, Player player) {
+    }
+
+    // The average outcome of one option over the rollouts, counted from the decision to the end of
+    // the quest: the player's shields gained, the shields gained by each other player on average,
+    // the change in the player's hand size, and the chance the player has won the game by then.
+    // An option the player cannot take (sponsoring with a hand that cannot build the quest) is not
+    // played out, and is all zeros.
+    public record Estimate(boolean choice, boolean feasible, double expectedShields,
+            double expectedOpponentShields, double expectedCardChange, double winProbability) {
+        static Estimate infeasible(final boolean choice) {
+            return new Estimate(choice, false, 0, 0, 0, 0);
+        }
+
+        // Whether this option looks better than the other: one that can be taken, then a higher
+        // chance to win, then a bigger lead in shields gained, then more cards kept.
+        boolean beats(final Estimate other) {
+            if (feasible != other.feasible) {
+                return feasible;
+            }
+            if (winProbability != other.winProbability) {
+                return winProbability > other.winProbability;
+            }
+            double lead = expectedShields - expectedOpponentShields;
+            double otherLead = other.expectedShields - other.expectedOpponentShields;
+            if (lead != otherLead) {
+                return lead > otherLead;
+            }
+            return expectedCardChange > other.expectedCardChange;
+        }
+    }
+
+    public record Advice(Question question, Estimate yes, Estimate no, int rollouts) {
+        // Whether answering yes (sponsoring, or withdrawing) is recommended.
+        public boolean recommended() {
+            return yes.beats(no);
+        }
+
+        public String recommendedOption() {
+            return question.decision().option(recommended());
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final BatchRunner.AgentFactory rolloutAgents;
+
+    // Rollouts are played by agents from the given factory, one per seat.
+    public Advisor(final ForkJoinPool pool, final BatchRunner.AgentFactory rolloutAgents) {
+        this.pool = pool;
+        this.rolloutAgents = rolloutAgents;
+    }
+
+    public Advisor(final BatchRunner.AgentFactory rolloutAgents) {
+        this(ForkJoinPool.commonPool(), rolloutAgents);
+    }
+
+    // A decision to advise on, with everything the rollouts need from the game, taken at once so
+    // that the game can move on while they run.
+    public record Position(Question question, Game snapshot, int seat, boolean[] choices,
+            long seed) {
+    }
+
+    // Advise on the decision the game is waiting on text input for, or return null if it is not
+    // waiting on one.
+    public Advice advise(final Game game, final Duration budget) {
+        Position position = positionOf(game);
+        return position == null ? null : advise(position, budget);
+    }
+
+    // Advise on a decision that the game is about to ask for, without changing the game.
+    public Advice advise(final Game game, final Question question, final Duration budget) {
+        return advise(positionOf(game, question), budget);
+    }
+
+    // Take the position of the decision the game is waiting on text input for, or return null if
+    // it is not waiting on one.
+    public Position positionOf(final Game game) {
+        Question question = game.getPendingQuestion();
+        return question == null ? null : positionOf(game, question);
+    }
+
+    // Take the position of a decision that the game is about to ask for, without changing the game;
+    // the game is only read here, never by advise().
+    public Position positionOf(final Game game, final Question question) {
+        checkAskable(game, question);
+        boolean[] choices = canSayYes(game, question) ? new boolean[] {true, false}
+                : new boolean[] {false};
+        long seed = new SplittableRandom().nextLong();
+        return new Position(question, new Game(game, seed), game.seatOf(question.player()),
+                choices, seed);
+    }
+
+    // Advise on the decision of the given position. At least one rollout per feasible option is
+    // always run, even if that takes longer than the budget.
+    public Advice advise(final Position position, final Duration budget) {
+        final long deadline = System.nanoTime() + budget.toNanos();
+        Tally tally = pool.submit(() -> IntStream.range(0, pool.getParallelism()).parallel()
+                .mapToObj(worker -> rolloutUntil(deadline, position.snapshot(), position.seat(),
+                        position.question().decision(), position.choices(),
+                        position.seed() + worker * SEED_GAMMA))
+                .reduce(Tally::addAll).orElseThrow()).join();
+
+        Estimate yes = position.choices().length == 2 ? tally.estimate(true)
+                : Estimate.infeasible(true);
+        return new Advice(position.question(), yes, tally.estimate(false), tally.rollouts);
+    }
+
+    // Whether the player can answer yes: anyone can withdraw, but only a hand that can build the
+    // quest can sponsor it.
+    private static boolean canSayYes(final Game game, final Question question) {
+        return question.decision() != Decision.SPONSOR
+                || QuestSolver.canSponsor(question.player().getHand(), game.questLength());
+    }
+
+    private static void checkAskable(final Game game, final Question question) {
+        boolean askable = switch (question.decision()) {
+            case SPONSOR -> game.getSponsor() == null && game.getCurrentEventCard() != null
+                    && game.getCurrentEventCard().getCardType() == Card.CardType.QUEST;
+            case WITHDRAW -> game.getSponsor() != null && game.getStageNum() > 0
+                    && game.viewEligible().contains(question.player());
+        };
+        if (!askable) {
+            throw new IllegalStateException(question.player().getID() + " cannot be asked to "
+                    + question.decision().option(true) + " now!");
+        }
+    }
+
+    // Run rollouts of the given choices until the deadline, at least one.
+    private Tally rolloutUntil(final long deadline, final Game snapshot, final int seat,
+            final Decision decision, final boolean[] choices, final long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Tally tally = new Tally();
+        do {
+            Game dealt = new Game(snapshot, random.nextLong());
+            dealHiddenCards(dealt, seat, random);
+            long playSeed = random.nextLong();
+            for (final boolean choice : choices) {
+                playOut(tally, new Game(dealt, playSeed), seat, decision, choice, playSeed);
+            }
+            tally.rollouts++;
+        } while (System.nanoTime() < deadline);
+        return tally;
+    }
+
+    // Put the cards the player in the given seat cannot see back into the Adventure draw pile,
+    // shuffle it, and deal every other player a new hand of the same size. Unless the player is the
+    // sponsor, that takes in the cards of the stages not fought yet, which are built again from the
+    // sponsor's new hand.
+    private void dealHiddenCards(final Game world, final int seat,
+            final SplittableRandom random) {
+        Deck deck = world.getAdventureDeck();
+        List<Player> players = world.getPlayersStartingCurrent();
+        Player sponsor = world.getSponsor();
+        boolean stagesHidden = sponsor != null && world.seatOf(sponsor) != seat;
+        List<List<Card>> stages = world.viewQuestStages();
+        int revealed = Math.max(world.getStageNum() - 1, 0); // Stages fought and so seen by all
+        List<List<Card>> revealedStages = stages.subList(0, Math.min(revealed, stages.size()));
+        int[] hiddenCounts = new int[players.size()];
+        for (int i = 0; i < players.size(); i++) {
+            Player p = players.get(i);
+            if (world.seatOf(p) == seat) {
+                continue;
+            }
+            List<Card> hidden;
+            if (p != sponsor) {
+                hidden = List.copyOf(p.getHand());
+            } else if (stagesHidden) {
+                hidden = new ArrayList<>(p.getHand());
+                revealedStages.forEach(stage -> stage.forEach(hidden::remove));
+            } else {
+                hidden = world.viewEffectiveSponsorHand();
+            }
+            for (final Card c : hidden) {
+                p.getHand().remove(c);
+            }
+            deck.addToDrawPile(hidden);
+            hiddenCounts[i] = hidden.size();
+        }
+
+        deck.setRandom(random.split());
+        deck.shuffleDeck();
+        int previousValue = revealedStages.isEmpty() ? 0 : Game.cardSum(revealedStages.getLast());
+        int stagesLeft = stages.size() - revealedStages.size();
+        List<Card> sponsorCards = List.of();
+        for (int i = 0; i < players.size(); i++) {
+            Player p = players.get(i);
+            if (p == sponsor && stagesHidden) {
+                sponsorCards = dealSponsorHand(world, hiddenCounts[i], stagesLeft, previousValue);
+                p.getHand().addAll(sponsorCards); // Same size as before, so no trim
+            } else {
+                p.getHand().addAll(world.drawAdventureCards(hiddenCounts[i]));
+            }
+        }
+        if (stagesHidden && stagesLeft > 0) {
+            List<List<Card>> rebuilt = new ArrayList<>(revealedStages);
+            rebuilt.addAll(buildStages(world, sponsor, sponsorCards, stagesLeft, previousValue,
+                    random.nextLong()));
+            world.setQuestStages(rebuilt);
+        }
+    }
+
+    // Deal the sponsor cards that can build the stages left, as theirs could; cards that cannot are
+    // put back.
+    private static List<Card> dealSponsorHand(final Game world, final int size,
+            final int stagesLeft, final int previousValue) {
+        for (int attempt = 0; attempt < MAX_SPONSOR_DEALS; attempt++) {
+            List<Card> hand = world.drawAdventureCards(size);
+            if (stagesLeft == 0 || QuestSolver.build(hand, stagesLeft, previousValue,
+                    QuestSolver.Goal.CHEAPEST) != null) {
+                return hand;
+            }
+            world.getAdventureDeck().addToDrawPile(hand);
+            world.getAdventureDeck().shuffleDeck();
+        }
+        throw new IllegalStateException("No " + size + " cards dealt in " + MAX_SPONSOR_DEALS
+                + " tries could build the rest of the quest!");
+    }
+
+    // Build the stages left from the given cards of the sponsor, with their rollout agent.
+    private List<List<Card>> buildStages(final Game world, final Player sponsor,
+            final List<Card> cards, final int stagesLeft, final int previousValue,
+            final long seed) {
+        PlayerAgent agent = rolloutAgents.create(seed, world.seatOf(sponsor));
+        List<Card> available = new ArrayList<>(cards);
+        List<List<Card>> stages = new ArrayList<>(stagesLeft);
+        int stageValue = previousValue;
+        int first = world.questLength() - stagesLeft + 1;
+        for (int stageNum = first; stageNum <= world.questLength(); stageNum++) {
+            List<Card> stage = agent.buildStage(new PlayerAgent.StageRequest(world, sponsor,
+                    List.copyOf(available), stageNum, world.questLength(), stageValue));
+            for (final Card c : stage) {
+                available.remove(c);
+            }
+            stages.add(List.copyOf(stage));
+            stageValue = Game.cardSum(stage);
+        }
+        return stages;
+    }
+
+    // Play the rest of the quest in the given world with the player's choice forced, and add the
+    // outcome to the tally.
+    private void playOut(final Tally tally, final Game world, final int seat,
+            final Decision decision, final boolean choice, final long seed) {
+        List<Player> players = new ArrayList<>();
+        List<PlayerAgent> agents = new ArrayList<>();
+        int[] shieldsBefore = new int[world.getPlayerCount()];
+        for (int i = 0; i < world.getPlayerCount(); i++) {
+            Player p = world.getPlayerByID("P" + (i + 1));
+            players.add(p);
+            shieldsBefore[i] = p.getShields();
+            PlayerAgent agent = rolloutAgents.create(seed, i);
+            agents.add(i == seat ? new ForcedAgent(agent, choice) : agent);
+        }
+        world.setAgents(agents);
+
+        Player player = players.get(seat);
+        int cardsBefore = player.getHandSize();
+        switch (decision) {
+            case SPONSOR -> world.promptPlayersToSponsorFrom(player);
+            case WITHDRAW -> world.finishStageFrom(player);
+        }
+        world.finishQuest();
+
+        int opponentShields = 0;
+        for (int i = 0; i < players.size(); i++) {
+            if (i != seat) {
+                opponentShields += players.get(i).getShields() - shieldsBefore[i];
+            }
+        }
+        tally.add(choice, player.getShields() - shieldsBefore[seat],
+                (double) opponentShields / (players.size() - 1),
+                player.getHandSize() - cardsBefore, world.getWinners().contains(player));
+    }
+
+    // Running sums of rollout outcomes for each option. Not thread-safe: each worker keeps its own.
+    private static class Tally {
+        private int rollouts;
+        private final double[] shields = new double[2];
+        private final double[] opponentShields = new double[2];
+        private final double[] cardChange = new double[2];
+        private final int[] wins = new int[2];
+
+        private void add(final boolean choice, final int shieldsGained,
+                final double opponentShieldsGained, final int cardsGained, final boolean won) {
+            int i = choice ? 1 : 0;
+            shields[i] += shieldsGained;
+            opponentShields[i] += opponentShieldsGained;
+            cardChange[i] += cardsGained;
+            wins[i] += won ? 1 : 0;
+        }
+
+        private Tally addAll(final Tally other) {
+            rollouts += other.rollouts;
+            for (int i = 0; i < 2; i++) {
+                shields[i] += other.shields[i];
+                opponentShields[i] += other.opponentShields[i];
+                cardChange[i] += other.cardChange[i];
+                wins[i] += other.wins[i];
+            }
+            return this;
+        }
+
+        private Estimate estimate(final boolean choice) {
+            int i = choice ? 1 : 0;
+            return new Estimate(choice, true, shields[i] / rollouts, opponentShields[i] / rollouts,
+                    cardChange[i] / rollouts, (double) wins[i] / rollouts);
+        }
+    }
+
+    // Answers the player's first sponsor or withdraw question with a fixed choice, and leaves
+    // everything else to another agent.
+    private static class ForcedAgent implements PlayerAgent {
+        private final PlayerAgent agent;
+        private final boolean choice;
+        private boolean answered;
+
+        private ForcedAgent(final PlayerAgent agent, final boolean choice) {
+            this.agent = agent;
+            this.choice = choice;
+            this.answered = false;
+        }
+
+        @Override
+        public boolean sponsor(final SponsorRequest request) {
+            if (answered) {
+                return agent.sponsor(request);
+            }
+            answered = true;
+            return choice;
+        }
+
+        @Override
+        public List<Card> buildStage(final StageRequest request) {
+            return agent.buildStage(request);
+        }
+
+        @Override
+        public boolean withdraw(final WithdrawRequest request) {
+            if (answered) {
+                return agent.withdraw(request);
+            }
+            answered = true;
+            return choice;
+        }
+
+        @Override
+        public List<Card> buildAttack(final AttackRequest request) {
+            return agent.buildAttack(request);
+        }
+
+        @Override
+        public Card trim(final TrimRequest request) {
+            return agent.trim(request);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.questgame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Finds the cheapest attack that beats a stage: the non-repeated Weapons from a hand with the least
+// total value that is still at least the stage value (see Game.doAttack()).
+// Attacks are sets of standard Weapon kinds, written as bitmasks over WEAPONS (bit i set if
+// WEAPONS.get(i) is used). There are only 64 of them, so every answer is precomputed for each set
+// of Weapons held and each stage value a Weapon set could reach; solving is a table lookup.
+public final class AttackSolver {
+    public static final int NONE = -1; // No attack from the Weapons held beats the stage
+
+    // Standard Weapon kinds, in sorting order: D5, S10, H10, B15, L20, E30
+    static final List<Card> WEAPONS = Card.standardCards().stream()
+            .filter(c -> c.getCardType() == Card.CardType.WEAPON).toList();
+    private static final int SUBSETS = 1 << WEAPONS.size();
+
+    private static final int[] VALUES = new int[SUBSETS]; // Value of each attack
+    private static final List<List<Card>> CARDS = new ArrayList<>(SUBSETS); // Cards of each attack
+    private static final int MAX_VALUE; // Value of using every Weapon kind
+    // Cheapest attack by [Weapons held][stage value], for stage values 0 to MAX_VALUE
+    private static final byte[][] CHEAPEST;
+    // Every attack worth at least the stage value that has no smaller attack also worth enough,
+    // by [Weapons held][stage value]
+    private static final int[][][] MINIMAL;
+    private static final int[] NO_ATTACKS = {};
+
+    static {
+        for (int mask = 0; mask < SUBSETS; mask++) {
+            List<Card> cards = new ArrayList<>();
+            for (int i = 0; i < WEAPONS.size(); i++) {
+                if ((mask & (1 << i)) != 0) {
+                    cards.add(WEAPONS.get(i));
+                }
+            }
+            VALUES[mask] = Game.cardSum(cards);
+            CARDS.add(List.copyOf(cards));
+        }
+        MAX_VALUE = VALUES[SUBSETS - 1];
+
+        CHEAPEST = new byte[SUBSETS][MAX_VALUE + 1];
+        for (int held = 0; held < SUBSETS; held++) {
+            for (int stageValue = 0; stageValue <= MAX_VALUE; stageValue++) {
+                CHEAPEST[held][stageValue] = (byte) solve(held, stageValue);
+            }
+        }
+
+        MINIMAL = new int[SUBSETS][MAX_VALUE + 1][];
+        for (int held = 0; held < SUBSETS; held++) {
+            for (int stageValue = 0; stageValue <= MAX_VALUE; stageValue++) {
+                MINIMAL[held][stageValue] = findMinimalAttacks(held, stageValue);
+            }
+        }
+    }
+
+    private AttackSolver() {
+    }
+
+    // Search every attack from the Weapons held for the cheapest one worth at least the stage
+    // value; ties go to the attack using fewer cards, so that more are kept for later stages.
+    private static int solve(final int held, final int stageValue) {
+        int best = NONE;
+        // Visit every subset of held, including held itself and the empty attack
+        for (int mask = held; ; mask = (mask - 1) & held) {
+            if (VALUES[mask] >= stageValue && (best == NONE || VALUES[mask] < VALUES[best]
+                    || (VALUES[mask] == VALUES[best]
+                            && Integer.bitCount(mask) < Integer.bitCount(best)))) {
+                best = mask;
+            }
+            if (mask == 0) {
+                return best;
+            }
+        }
+    }
+
+    private static int[] findMinimalAttacks(final int held, final int stageValue) {
+        List<Integer> minimal = new ArrayList<>();
+        for (int mask = held; ; mask = (mask - 1) & held) {
+            boolean isMinimal = VALUES[mask] >= stageValue;
+            for (int i = 0; isMinimal && i < WEAPONS.size(); i++) {
+                if ((mask & (1 << i)) != 0 && VALUES[mask & ~(1 << i)] >= stageValue) {
+                    isMinimal = false; // Still enough without this Weapon
+                }
+            }
+            if (isMinimal) {
+                minimal.add(mask);
+            }
+            if (mask == 0) {
+                return minimal.stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+    }
+
+    // Return the set of Weapon kinds the player has at least one of.
+    public static int heldWeapons(final Player player) {
+        int held = 0;
+        for (int i = 0; i < WEAPONS.size(); i++) {
+            if (player.countInHand(WEAPONS.get(i)) > 0) {
+                held |= 1 << i;
+            }
+        }
+        return held;
+    }
+
+    // Return the cheapest attack using only the given Weapon kinds that is worth at least the stage
+    // value, or NONE if even using all of them is not enough.
+    public static int cheapestAttack(final int heldWeapons, final int stageValue) {
+        if (stageValue > MAX_VALUE) {
+            return NONE;
+        }
+        return CHEAPEST[heldWeapons][Math.max(stageValue, 0)];
+    }
+
+    // Return the cheapest attack from the player's hand that beats the stage, as the cards to play
+    // (an unmodifiable, shared list), or null if the player cannot beat it.
+    public static List<Card> cheapestAttack(final Player player, final int stageValue) {
+        int attack = cheapestAttack(heldWeapons(player), stageValue);
+        return attack == NONE ? null : cards(attack);
+    }
+
+    // Return every attack using only the given Weapon kinds worth at least the stage value, that
+    // would not be without any one of its Weapons; any other attack worth enough holds one of these
+    // and more. The array is shared and must not be modified.
+    static int[] minimalAttacks(final int heldWeapons, final int stageValue) {
+        if (stageValue > MAX_VALUE) {
+            return NO_ATTACKS;
+        }
+        return MINIMAL[heldWeapons][Math.max(stageValue, 0)];
+    }
+
+    // Return the cards of an attack, in sorting order.
+    public static List<Card> cards(final int attack) {
+        return CARDS.get(attack);
+    }
+
+    public static int value(final int attack) {
+        return VALUES[attack];
+    }
+}
@@ -0,0 +1,163 @@
+package com.questgame;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+
+// Plays many independent headless games with agent-driven players, in parallel on a fork-join pool,
+// for balance studies of the standard decks. Each game is one task with its own seed, derived from
+// the batch seed and the game's index, so a batch gives the same results however it is split.
+// Only running totals are kept: no per-game objects outlive their game.
+public class BatchRunner {
+    private static final int SEATS = 4; // Players in a standard game; see Game.initGame()
+    private static final long SEED_GAMMA = 0x9E3779B97F4A7C15L; // Spreads out consecutive seeds
+
+    // Creates the agent for one seat of one game; called from pool threads, so it must be
+    // thread-safe, and each agent it returns is only used by one game.
+    @FunctionalInterface
+    public interface AgentFactory {
+        PlayerAgent create(long gameSeed, int seat);
+    }
+
+    // Agents making random decisions, seeded from the game they play in.
+    public static final AgentFactory RANDOM_AGENTS =
+            (gameSeed, seat) -> new RandomAgent(gameSeed * SEATS + seat);
+
+    private final ForkJoinPool pool;
+    private final AgentFactory agents;
+
+    public BatchRunner(final ForkJoinPool pool, final AgentFactory agents) {
+        this.pool = pool;
+        this.agents = agents;
+    }
+
+    // Use all cores through the common pool.
+    public BatchRunner(final AgentFactory agents) {
+        this(ForkJoinPool.commonPool(), agents);
+    }
+
+    // Return the seed of the game with the given index in a batch.
+    public static long gameSeed(final long batchSeed, final long index) {
+        return batchSeed + index * SEED_GAMMA;
+    }
+
+    // Play the given number of games and return their aggregated results.
+    public Results run(final long games, final long batchSeed) {
+        return pool.submit(() -> LongStream.range(0, games).parallel()
+                .collect(Results::new, (results, i) -> results.add(play(gameSeed(batchSeed, i))),
+                        Results::addAll))
+                .join();
+    }
+
+    // Play one full game to the end and return it.
+    public Game play(final long seed) {
+        Game game = new Game(null, null, seed);
+        game.initGame();
+
+        PlayerAgent[] seatAgents = new PlayerAgent[game.getPlayerCount()];
+        for (int seat = 0; seat < seatAgents.length; seat++) {
+            seatAgents[seat] = agents.create(seed, seat);
+        }
+        game.startGameLoop(Arrays.asList(seatAgents));
+        return game;
+    }
+
+    // Running totals over finished games. Not thread-safe: each pool thread fills its own, and they
+    // are combined at the end.
+    public static class Results {
+        private long games;
+        private final long[] winsBySeat = new long[SEATS]; // Games each seat was a winner in
+        private long turns;
+        private int maxTurns;
+        private long questsSponsored;
+
+        public void add(final Game game) {
+            games++;
+            for (final Player winner : game.getWinners()) {
+                winsBySeat[game.seatOf(winner)]++;
+            }
+            turns += game.getTurnCount();
+            maxTurns = Math.max(maxTurns, game.getTurnCount());
+            questsSponsored += game.getQuestsSponsored();
+        }
+
+        public void addAll(final Results other) {
+            games += other.games;
+            for (int seat = 0; seat < SEATS; seat++) {
+                winsBySeat[seat] += other.winsBySeat[seat];
+            }
+            turns += other.turns;
+            maxTurns = Math.max(maxTurns, other.maxTurns);
+            questsSponsored += other.questsSponsored;
+        }
+
+        public long getGames() {
+            return games;
+        }
+
+        // Games the given seat (0 for P1) won, including games with several winners.
+        public long getWins(final int seat) {
+            return winsBySeat[seat];
+        }
+
+        public long getTurns() {
+            return turns;
+        }
+
+        public int getMaxTurns() {
+            return maxTurns;
+        }
+
+        public long getQuestsSponsored() {
+            return questsSponsored;
+        }
+
+        public void print(final PrintWriter output) {
+            output.println("Games played: " + games);
+            for (int seat = 0; seat < SEATS; seat++) {
+                output.printf("P%d won: %d (%.1f%%)%n", seat + 1, winsBySeat[seat],
+                        percentOfGames(winsBySeat[seat]));
+            }
+            output.printf("Turns per game: %.2f average, %d max%n", perGame(turns), maxTurns);
+            output.printf("Quests sponsored per game: %.2f%n", perGame(questsSponsored));
+            output.flush();
+        }
+
+        private double perGame(final long total) {
+            return games == 0 ? 0 : (double) total / games;
+        }
+
+        private double percentOfGames(final long count) {
+            return 100 * perGame(count);
+        }
+    }
+
+    // Usage: <games> [seed]. Plays a batch of games with random agents and prints the results.
+    public static void main(String[] args) {
+        long games;
+        long seed;
+        try {
+            if (args.length < 1 || args.length > 2) {
+                throw new IllegalArgumentException("Expected 1 or 2 arguments");
+            }
+            games = Long.parseLong(args[0]);
+            seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+        } catch (IllegalArgumentException e) { // Including NumberFormatException
+            System.err.println("Usage: BatchRunner <games> [seed] (" + e.getMessage() + ")");
+            System.exit(2);
+            return;
+        }
+
+        long start = System.nanoTime();
+        Results results = new BatchRunner(RANDOM_AGENTS).run(games, seed);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        PrintWriter output = new PrintWriter(System.out);
+        output.println("Seed: " + seed);
+        results.print(output);
+        output.printf("Took %.2fs (%.0f games/s)%n", seconds, games / seconds);
+        output.flush();
+    }
+}
@@ -5,10 +5,27 @@ import java.util.*;
 import static java.util.Map.entry;
 
 public class Card implements Comparable<Card> {
+    private static final Map<Character, String> SYMBOL_TO_NAME =
+            Map.ofEntries(entry('D', "Dagger"), entry('S', "Sword"), entry('H', "Horse"),
+                    entry('B', "Battle-axe"), entry('L', "Lance"), entry('E', "Excalibur"),
+                    entry('F', "Foe"), entry('Q', "Quest"));
+    // Value of Weapon or Event card, by name.
+    private static final Map<String, Integer> NAME_TO_VALUE =
+            Map.ofEntries(entry("Dagger", 5), entry("Sword", 10), entry("Horse", 10),
+                    entry("Battle-axe", 15), entry("Lance", 20), entry("Excalibur", 30),
+                    entry("Plague", 2), entry("Queen's Favor", 2), entry("Prosperity", 2));
+    private static final Set<String> EVENT_NAMES = Set.of("Plague", "Queen's Favor", "Prosperity");
+    // Every card of a standard game, listed in sorting order; list index is the card's ordinal.
+    private static final List<Card> STANDARD_CARD_LIST = buildStandardCardList();
+    private static final Map<String, Card> STANDARD_CARDS = buildStandardCards();
+
     private final CardType cardType;
     private final String cardName;
     private final char cardSymbol;
     private final int value;
+    private final String cardID;
+    private final long sortKey; // Encodes the compareTo() order of this card
+    private final int ordinal; // Index in the standard card list, or -1 if not a standard card
 
     public Card(final CardType cardType, final String cardName, final char cardSymbol,
             final int value) {
@@ -19,11 +36,41 @@ public class Card implements Comparable<Card> {
         this.cardName = cardName;
         this.cardSymbol = cardSymbol;
         this.value = value;
+        this.cardID = "" + cardSymbol + value;
+        this.sortKey = buildSortKey(cardType, cardName, value);
+        this.ordinal = -1;
     }
 
-    // Construct and return a card based on the ID given (e.g. Q2, S10), OR pre-defined alias (e.g.
-    // "Sword" for S10)
+    // Construct a card based on the ID given (e.g. Q2, S10), OR pre-defined alias (e.g. "Sword"
+    // for S10). Prefer Card.of(), which returns a shared instance instead of a copy.
     public Card(final String s) throws IllegalArgumentException {
+        this(of(s));
+    }
+
+    // Copy the fields of an already validated card.
+    private Card(final Card c) {
+        this(c, c.ordinal);
+    }
+
+    private Card(final Card c, final int ordinal) {
+        this.cardType = c.cardType;
+        this.cardName = c.cardName;
+        this.cardSymbol = c.cardSymbol;
+        this.value = c.value;
+        this.cardID = c.cardID;
+        this.sortKey = c.sortKey;
+        this.ordinal = ordinal;
+    }
+
+    // Return the card for the ID given (e.g. Q2, S10), OR pre-defined alias (e.g. "Sword" for
+    // S10). Cards of a standard game are shared instances looked up from a table; anything else
+    // (e.g. "F7") is parsed and validated into a new card.
+    public static Card of(final String s) throws IllegalArgumentException {
+        final Card standard = STANDARD_CARDS.get(s);
+        return standard != null ? standard : parse(s);
+    }
+
+    private static Card parse(final String s) throws IllegalArgumentException {
         if (s.length() < 2) {
             throw new IllegalArgumentException("Card ID string '" + s + "' is too short!");
         }
@@ -35,10 +82,10 @@ public class Card implements Comparable<Card> {
         String name;
         Integer value;
 
-        value = getValue(s);
+        value = NAME_TO_VALUE.get(s);
         if (value != null) {
             // String is a valid card alias
-            if (s.matches("Plague|Queen's Favor|Prosperity")) {
+            if (EVENT_NAMES.contains(s)) {
                 type = CardType.EVENT;
                 symbol = 'E';
             } else {
@@ -59,7 +106,7 @@ public class Card implements Comparable<Card> {
                     name = "Quest";
                     break;
                 default:
-                    name = weaponSymbolToName(symbol); // See if a weapon is defined for this symbol
+                    name = SYMBOL_TO_NAME.get(symbol); // See if a weapon is defined for this symbol
                     if (name != null) { // It is a weapon
                         type = CardType.WEAPON;
                     } else { // Invalid symbol
@@ -72,17 +119,53 @@ public class Card implements Comparable<Card> {
 
         // Validate weapon value
         if (type == CardType.WEAPON) {
-            Integer trueValue = getValue(name);
+            Integer trueValue = NAME_TO_VALUE.get(name);
             if (!Objects.equals(value, trueValue)) {
                 throw new IllegalArgumentException("Card '" + name + "' should have value '"
                         + trueValue + "'! (Given: '" + value + "')");
             }
         }
 
-        this.cardType = type;
-        this.cardName = name;
-        this.cardSymbol = symbol;
-        this.value = value;
+        return new Card(type, name, symbol, value);
+    }
+
+    private static List<Card> buildStandardCardList() {
+        final String[] standardIDs = {"F5", "F10", "F15", "F20", "F25", "F30", "F35", "F40", "F50",
+                "F70", "D5", "S10", "H10", "B15", "L20", "E30", "Q2", "Q3", "Q4", "Q5", "Plague",
+                "Queen's Favor", "Prosperity"};
+
+        List<Card> cards = new ArrayList<>();
+        for (final String id : standardIDs) {
+            cards.add(new Card(parse(id), cards.size()));
+        }
+        return List.copyOf(cards);
+    }
+
+    // Build the table of every card found in a standard game, reachable by both ID and alias.
+    private static Map<String, Card> buildStandardCards() {
+        Map<String, Card> cards = new HashMap<>();
+        for (final Card c : STANDARD_CARD_LIST) {
+            cards.put(c.cardType == CardType.EVENT ? c.cardName : c.cardID, c);
+            cards.put(c.cardName, c);
+        }
+        cards.remove("Foe"); // Names shared by several cards are not aliases
+        cards.remove("Quest");
+        return Map.copyOf(cards);
+    }
+
+    // Sort by type (ascending) first, then break ties with values (ascending).
+    // Special case: Swords and Horses have the same card value, but Swords come first.
+    private static long buildSortKey(final CardType type, final String name, final int value) {
+        long key = ((long) type.ordinal() << 34) + ((long) value << 1);
+        if (type == CardType.WEAPON && Objects.equals(name, "Horse")) {
+            key++;
+        }
+        return key;
+    }
+
+    // Return an immutable list of every distinct card in a standard game, in sorting order.
+    public static List<Card> standardCards() {
+        return STANDARD_CARD_LIST;
     }
 
     // From the given list of cards, return a space-separated list of their IDs as a string.
@@ -104,29 +187,12 @@ public class Card implements Comparable<Card> {
         List<Card> cardObjects = new ArrayList<>();
 
         for (String id : s.split(" ")) {
-            cardObjects.add(new Card(id));
+            cardObjects.add(Card.of(id));
         }
 
         return cardObjects;
     }
 
-    private static String weaponSymbolToName(final char c) {
-        final Map<Character, String> SYMBOL_TO_NAME =
-                Map.ofEntries(entry('D', "Dagger"), entry('S', "Sword"), entry('H', "Horse"),
-                        entry('B', "Battle-axe"), entry('L', "Lance"), entry('E', "Excalibur"),
-                        entry('F', "Foe"), entry('Q', "Quest"));
-        return SYMBOL_TO_NAME.get(c);
-    }
-
-    // Retrieve value of Weapon or Event card.
-    private static Integer getValue(final String s) {
-        final Map<String, Integer> NAME_TO_VALUE =
-                Map.ofEntries(entry("Dagger", 5), entry("Sword", 10), entry("Horse", 10),
-                        entry("Battle-axe", 15), entry("Lance", 20), entry("Excalibur", 30),
-                        entry("Plague", 2), entry("Queen's Favor", 2), entry("Prosperity", 2));
-        return NAME_TO_VALUE.get(s);
-    }
-
     public CardType getCardType() {
         return cardType;
     }
@@ -141,7 +207,7 @@ public class Card implements Comparable<Card> {
 
     // Return the alphabet + value representation of a card. (e.g. F5, E30)
     public String getCardID() {
-        return "" + cardSymbol + value;
+        return cardID;
     }
 
     @Override
@@ -155,6 +221,16 @@ public class Card implements Comparable<Card> {
                 && Objects.equals(this.cardSymbol, that.cardSymbol) && this.value == that.value;
     }
 
+    @Override
+    public int hashCode() {
+        // Combines the same fields that equals() compares
+        int hash = cardType.ordinal();
+        hash = 31 * hash + Objects.hashCode(cardName);
+        hash = 31 * hash + cardSymbol;
+        hash = 31 * hash + value;
+        return hash;
+    }
+
     @Override
     public String toString() {
         // e.g. B15 "Battle-axe"
@@ -163,25 +239,22 @@ public class Card implements Comparable<Card> {
 
     @Override
     public int compareTo(Card c) {
-        // Sort based on type (ascending) first
-        int ord = this.cardType.compareTo(c.cardType);
-
-        if (ord == 0) {
-            // Same type, break ties with values (ascending)
-            ord = this.value - c.value;
-
-            // Special case: Swords and Horses have the same card value, but Swords come first.
-            if (this.cardType == CardType.WEAPON && ord == 0) {
-                if (Objects.equals(this.cardName, "Sword") && Objects.equals(c.cardName, "Horse")) {
-                    ord = -1;
-                } else if (Objects.equals(this.cardName, "Horse")
-                        && Objects.equals(c.cardName, "Sword")) {
-                    ord = 1;
-                }
-            }
+        return Long.compare(this.sortKey, c.sortKey);
+    }
+
+    // Return the shared standard card equal to this one, or null if it is not a standard card.
+    Card toStandard() {
+        if (ordinal >= 0) {
+            return this;
         }
+        Card standard = STANDARD_CARDS.get(cardType == CardType.EVENT ? cardName : cardID);
+        return this.equals(standard) ? standard : null;
+    }
 
-        return ord;
+    // Return the index of this card in Card.standardCards(), or -1 if it is not a shared standard
+    // card instance. Use CardCodec to encode any card.
+    int getOrdinal() {
+        return ordinal;
     }
 
     // All possible card types; the order here also defines sorting order.
@@ -0,0 +1,107 @@
+package com.questgame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Maps every distinct card to a small, stable ordinal that fits in a byte, so that hands, quest
+// stages and decks can be held as primitive arrays instead of lists of Card objects.
+// Standard cards always get the ordinal of their position in Card.standardCards() (which also
+// follows sorting order); any other card (e.g. "F7" used for testing) is given the next free
+// ordinal the first time it is encoded.
+public final class CardCodec {
+    public static final int STANDARD_CARD_COUNT = Card.standardCards().size();
+    public static final int MAX_ORDINALS = 256; // Ordinals are stored as unsigned bytes
+
+    // Card for each ordinal handed out so far; copied when a new non-standard card is added.
+    private static volatile Card[] cards = Card.standardCards().toArray(new Card[0]);
+
+    private CardCodec() {
+    }
+
+    // Return the ordinal of the given card, between 0 and MAX_ORDINALS - 1.
+    public static int ordinal(final Card c) {
+        int ordinal = c.getOrdinal();
+        if (ordinal >= 0) {
+            return ordinal;
+        }
+        Card standard = c.toStandard();
+        if (standard != null) {
+            return standard.getOrdinal();
+        }
+        return findOrAdd(c);
+    }
+
+    public static byte encode(final Card c) {
+        return (byte) ordinal(c);
+    }
+
+    public static Card decode(final byte b) {
+        return decode(b & 0xFF);
+    }
+
+    public static Card decode(final int ordinal) {
+        return cards[ordinal];
+    }
+
+    // Encode a list of cards into an array of ordinals, maintaining order.
+    public static byte[] encode(final List<Card> cardList) {
+        byte[] encoded = new byte[cardList.size()];
+        int i = 0;
+        for (final Card c : cardList) {
+            encoded[i++] = encode(c);
+        }
+        return encoded;
+    }
+
+    // Decode an array of ordinals into a new list of cards, maintaining order.
+    public static List<Card> decode(final byte[] encoded) {
+        return decode(encoded, 0, encoded.length);
+    }
+
+    // Decode the ordinals from index 'from' (inclusive) to 'to' (exclusive) into a list of cards.
+    public static List<Card> decode(final byte[] encoded, final int from, final int to) {
+        List<Card> decoded = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            decoded.add(decode(encoded[i]));
+        }
+        return decoded;
+    }
+
+    // Return the sum of the values of the encoded cards.
+    public static int cardSum(final byte[] encoded) {
+        int total = 0;
+        for (final byte b : encoded) {
+            total += decode(b).getValue();
+        }
+        return total;
+    }
+
+    // Return the number of ordinals handed out so far; ordinals from STANDARD_CARD_COUNT up to it
+    // belong to non-standard cards, and differ between processes.
+    public static int ordinalCount() {
+        return cards.length;
+    }
+
+    public static boolean isStandard(final int ordinal) {
+        return ordinal < STANDARD_CARD_COUNT;
+    }
+
+    private static synchronized int findOrAdd(final Card c) {
+        Card[] current = cards;
+        for (int i = STANDARD_CARD_COUNT; i < current.length; i++) {
+            if (current[i].equals(c)) {
+                return i;
+            }
+        }
+        if (current.length == MAX_ORDINALS) {
+            throw new IllegalStateException(
+                    "Cannot encode card '" + c + "': all " + MAX_ORDINALS + " ordinals are in use!");
+        }
+
+        Card[] extended = Arrays.copyOf(current, current.length + 1);
+        extended[current.length] = c;
+        cards = extended;
+        return current.length;
+    }
+}
@@ -0,0 +1,68 @@
+package com.questgame;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+// An unordered collection of cards that counts how many copies of each card it holds.
+// Adding, removing and finding a card take constant time, so matching one group of cards against
+// another (e.g. cards used in a quest against the sponsor's hand) takes linear time overall.
+public class CardMultiset {
+    private final Map<Card, Integer> counts;
+    private int size;
+
+    public CardMultiset() {
+        this.counts = new HashMap<>();
+        this.size = 0;
+    }
+
+    public CardMultiset(final Collection<Card> cards) {
+        this();
+        addAll(cards);
+    }
+
+    public void add(final Card c) {
+        counts.merge(c, 1, Integer::sum);
+        size++;
+    }
+
+    public void addAll(final Collection<Card> cards) {
+        for (final Card c : cards) {
+            add(c);
+        }
+    }
+
+    // Remove one copy of the given card; returns false if there was none to remove.
+    public boolean remove(final Card c) {
+        Integer count = counts.get(c);
+        if (count == null) {
+            return false;
+        }
+
+        if (count == 1) {
+            counts.remove(c);
+        } else {
+            counts.put(c, count - 1);
+        }
+        size--;
+        return true;
+    }
+
+    // Return how many copies of the given card are held.
+    public int count(final Card c) {
+        return counts.getOrDefault(c, 0);
+    }
+
+    public boolean contains(final Card c) {
+        return counts.containsKey(c);
+    }
+
+    // Returns the total number of cards held, counting every copy.
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
@@ -1,102 +1,253 @@
 package com.questgame;
 
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.*;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
+// Hosts any number of games at once, each in its own session (see GameSession): /start returns
+// the new game's ID, which every other request names with its gameId parameter.
 @RestController
 @CrossOrigin(origins = "*")
 public class Controller {
-    private Boolean gameStarted;
-    private Game game;
-
-    /* Asynchronous game I/O members */
-    @SuppressWarnings("FieldCanBeLocal")
-    private ExecutorService executor;
-    private PipedOutputStream writeToStream;
-    private PipedInputStream readFromStream;
-    private StringWriter outputBuffer;
-
-    public Controller() throws IOException {
-        gameStarted = false;
-        initIO();
+    private static final Duration READY_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration KEEP_ALIVE = Duration.ofSeconds(15); // Between stream comments
+    private static final Duration MAX_ADVICE_BUDGET = Duration.ofSeconds(1); // Per /advice request
+    private static final int ADVICE_THREADS = // Shared by all /advice requests
+            Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    private final SessionRegistry sessions;
+    private final ExecutorService executor; // Sends event streams, one virtual thread per stream
+    private final ForkJoinPool advicePool; // Runs rollouts, off the common pool
+    private final Advisor advisor;
+
+    @Autowired
+    public Controller(final SessionRegistry sessions) {
+        this.sessions = sessions;
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        // Never more threads than that, even while a rollout waits on another
+        advicePool = new ForkJoinPool(ADVICE_THREADS,
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false, 0, ADVICE_THREADS, 1,
+                pool -> true, 60, TimeUnit.SECONDS);
+        advisor = new Advisor(advicePool, BatchRunner.RANDOM_AGENTS);
     }
 
+    public Controller() {
+        this(new SessionRegistry());
+    }
+
+    // End the event streams still open and the rollouts still running, e.g. as the server shuts
+    // down.
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        advicePool.shutdownNow();
+    }
+
+    // Start a new game, ending the one named by previousGameId (e.g. the one the client was playing
+    // until now) if there is one. Answers 503 if the server already hosts as many games as it may.
     @PostMapping("/start")
     public Map<String, Object> start(
-            @RequestParam(value = "scenario", defaultValue = "0") String scenarioId)
-            throws InterruptedException {
-        executor = Executors.newSingleThreadExecutor();
-        executor.submit(() -> {
-            try {
-                newGame(Integer.parseInt(scenarioId));
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-            game.startGameLoop();
-        });
-        return getGameState();
+            @RequestParam(value = "scenario", defaultValue = "0") String scenarioId,
+            @RequestParam(value = "previousGameId", required = false) String previousGameId)
+            throws IOException, InterruptedException {
+        int scenario = Integer.parseInt(scenarioId);
+        if (previousGameId != null) {
+            sessions.cancel(previousGameId);
+        }
+
+        GameSession session;
+        try {
+            session = sessions.create();
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+        rigScenario(session.getGame(), scenario);
+        sessions.start(session);
+        return getGameState(session);
     }
 
     @PostMapping("/submit")
-    public Map<String, Object> submit(
+    public Map<String, Object> submit(@RequestParam(value = "gameId") String gameId,
             @RequestParam(value = "submittedText", defaultValue = "") String submittedText)
             throws IOException, InterruptedException {
-        writeToStream.write((submittedText + "\n").getBytes());
-        writeToStream.flush();
-        return getGameState();
+        GameSession session = getSession(gameId);
+        session.submit(submittedText);
+        return getGameState(session);
     }
 
-    private Map<String, Object> getGameState() throws InterruptedException {
-        Thread.sleep(100); // Give short delay before retrieving game state to allow it to update
+    // Return the game text and events since the last response, without sending anything.
+    @PostMapping("/state")
+    public Map<String, Object> state(@RequestParam(value = "gameId") String gameId)
+            throws InterruptedException {
+        return getGameState(getSession(gameId));
+    }
 
-        Map<String, Object> gameStateMap = new HashMap<>();
+    // Return how many games are in progress, i.e. how many game threads are live, how many sessions
+    // are kept (ended games included) and how many games may be in progress at once.
+    @GetMapping("/metrics")
+    public Map<String, Object> metrics() {
+        Map<String, Object> metricsMap = new HashMap<>();
+        metricsMap.put("liveGameThreads", sessions.getGameThreads());
+        metricsMap.put("sessions", sessions.size());
+        metricsMap.put("maxGames", sessions.getMaxGames());
+        return metricsMap;
+    }
 
-        // Return the output buffer's content, then clear it
-        gameStateMap.put("gameText", outputBuffer.toString());
-        outputBuffer.getBuffer().setLength(0);
+    // Stream the game's output and state as Server-Sent Events, from the game's log (see
+    // SessionLog): "output" events carry a chunk of game text, and "state" events the state each
+    // time the game waits on input or ends. Each event's ID is its log entry's, so a client that
+    // reconnects with Last-Event-ID gets everything after it. A client too far behind for that gets
+    // a "reset" event with the current state instead, and carries on from there; the game itself
+    // never waits on a slow client. The stream ends after the game does.
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(value = "gameId") String gameId,
+            @RequestHeader(value = "Last-Event-ID", defaultValue = "0") String lastEventId) {
+        GameSession session = getSession(gameId);
+        long resumeFrom = parseEventId(lastEventId);
+        SseEmitter emitter = new SseEmitter(0L); // Open as long as the game runs
+        executor.submit(() -> streamLog(session, emitter, resumeFrom));
+        return emitter;
+    }
 
-        gameStateMap.put("gameStarted", gameStarted);
-        gameStateMap.put("currSelectionMenu", game.getCurrentCardsInSelectMenu());
+    // Parse a Last-Event-ID here, on the request's thread, so that a bad one is answered with 400
+    // rather than ending the stream on the streaming thread.
+    private static long parseEventId(final String lastEventId) {
+        try {
+            long id = Long.parseLong(lastEventId.trim());
+            if (id >= 0) {
+                return id;
+            }
+        } catch (NumberFormatException e) {
+            // Answered below
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Last-Event-ID is not an event ID: " + lastEventId);
+    }
+
+    private static void streamLog(final GameSession session, final SseEmitter emitter,
+            final long lastEventId) {
+        SessionLog log = session.getLog();
+        long sent = lastEventId;
+        try {
+            while (true) {
+                List<SessionLog.Entry> entries = log.after(sent, KEEP_ALIVE);
+                if (entries == null) {
+                    sent = log.getLastId();
+                    emitter.send(SseEmitter.event().id(String.valueOf(sent)).name("reset")
+                            .data(session.currentState().toMap(), MediaType.APPLICATION_JSON));
+                } else if (entries.isEmpty() && !log.isClosed()) {
+                    emitter.send(SseEmitter.event().comment("keep-alive"));
+                } else {
+                    for (final SessionLog.Entry e : entries) {
+                        Object data = e.data() instanceof GameSession.State state ? state.toMap()
+                                : e.data();
+                        emitter.send(SseEmitter.event().id(String.valueOf(e.id())).name(e.type())
+                                .data(data, MediaType.APPLICATION_JSON));
+                        sent = e.id();
+                    }
+                }
+
+                if (log.isClosed() && sent == log.getLastId()) {
+                    emitter.complete();
+                    return;
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e); // Client gone
+        } catch (InterruptedException e) {
+            emitter.complete();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Advise the player the game is waiting on about their sponsor or withdraw decision, spending
+    // about budgetMs milliseconds on rollouts, at most MAX_ADVICE_BUDGET. The question is null if
+    // no such decision is pending. Answers 400 if budgetMs is not a positive number.
+    @PostMapping("/advice")
+    public Map<String, Object> advice(@RequestParam(value = "gameId") String gameId,
+            @RequestParam(value = "budgetMs", defaultValue = "50") String budgetMs) {
+        Map<String, Object> adviceMap = new HashMap<>();
+        Duration budget = parseBudget(budgetMs);
+        Advisor.Position position = getSession(gameId).withGame(advisor::positionOf);
+        Advisor.Advice advice = position == null ? null : advisor.advise(position, budget);
+        if (advice == null) {
+            adviceMap.put("question", null);
+            return adviceMap;
+        }
 
-        Map<String, Map<String, String>> playersMap = new HashMap<>();
-        for (Player p : game.getPlayersStartingCurrent()) {
-            Map<String, String> playerInfoMap = new HashMap<>();
-            playerInfoMap.put("shields", String.valueOf(p.getShields()));
-            playerInfoMap.put("hand", p.getHandString());
-            playerInfoMap.put("handSize", String.valueOf(p.getHandSize()));
-            playersMap.put(p.getID(), playerInfoMap);
+        adviceMap.put("player", advice.question().player().getID());
+        adviceMap.put("question", advice.question().decision().option(true));
+        adviceMap.put("rollouts", advice.rollouts());
+        adviceMap.put("recommended", advice.recommendedOption());
+
+        Map<String, Map<String, Object>> optionsMap = new HashMap<>();
+        for (Advisor.Estimate e : new Advisor.Estimate[] {advice.yes(), advice.no()}) {
+            Map<String, Object> estimateMap = new HashMap<>();
+            estimateMap.put("feasible", e.feasible());
+            estimateMap.put("expectedShields", e.expectedShields());
+            estimateMap.put("expectedOpponentShields", e.expectedOpponentShields());
+            estimateMap.put("expectedCardChange", e.expectedCardChange());
+            estimateMap.put("winProbability", e.winProbability());
+            optionsMap.put(advice.question().decision().option(e.choice()), estimateMap);
         }
-        gameStateMap.put("players", playersMap);
+        adviceMap.put("options", optionsMap);
 
-        return gameStateMap;
+        return adviceMap;
     }
 
-    private void initIO() throws IOException {
-        readFromStream = new PipedInputStream();
-        writeToStream = new PipedOutputStream(readFromStream);
-        outputBuffer = new StringWriter();
+    private static Duration parseBudget(final String budgetMs) {
+        try {
+            long ms = Long.parseLong(budgetMs.trim());
+            if (ms > 0) {
+                return Duration.ofMillis(Math.min(ms, MAX_ADVICE_BUDGET.toMillis()));
+            }
+        } catch (NumberFormatException e) {
+            // Answered below
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "budgetMs is not a positive number of milliseconds: " + budgetMs);
     }
 
-    private void newGame(int scenarioId) throws IOException {
-        gameStarted = true;
-        initIO();
+    private GameSession getSession(final String gameId) {
+        GameSession session = sessions.get(gameId);
+        if (session == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                    "No game with ID '" + gameId + "'!");
+        }
+        return session;
+    }
 
-        game = new Game(new Scanner(readFromStream), new PrintWriter(outputBuffer));
-        game.initGame(); // Set up a new game with a standard deck and random hands per player.
-        game.enableInputEcho(); // Input to the game will be displayed in the output
-        game.setSelectionMenuRedirected(); // Hides card selection menu in the text console since
-                                           // webpage UI shows it
+    // Return the game's state once it has done all it can with the input submitted, or as it is if
+    // that takes longer than READY_TIMEOUT (awaitingInput and gameOver are then both false).
+    private Map<String, Object> getGameState(final GameSession session)
+            throws InterruptedException {
+        session.awaitReady(READY_TIMEOUT);
+        return session.state();
+    }
 
+    // Rig the hands and decks of a new game for one of the predefined scenarios; scenario 0 (or
+    // any unknown one) leaves the game random.
+    static void rigScenario(final Game game, final int scenarioId) {
         ArrayList<Card> rigDeck;
 
         switch (scenarioId) {
@@ -123,7 +274,7 @@ public class Controller {
                 game.getAdventureDeck().addToDrawPile(rigDeck.reversed());
 
                 // Rig event deck
-                game.getEventDeck().addToDrawPile(new Card("Q4"));
+                game.getEventDeck().addToDrawPile(Card.of("Q4"));
                 break;
             case 2: // 2winner_game_2winner_quest
                 // Rig initial hands of each player
@@ -202,9 +353,9 @@ public class Controller {
 
                 /* Rig event deck */
                 rigDeck = new ArrayList<>(Card.stringToCards("Q4 Plague Prosperity"));
-                rigDeck.add(new Card("Queen's Favor")); // Space in name necessitates separate
+                rigDeck.add(Card.of("Queen's Favor")); // Space in name necessitates separate
                                                         // addition
-                rigDeck.add(new Card("Q3"));
+                rigDeck.add(Card.of("Q3"));
 
                 game.getEventDeck().addToDrawPile(rigDeck.reversed());
                 break;
@@ -229,7 +380,7 @@ public class Controller {
                 game.getAdventureDeck().addToDrawPile(rigDeck.reversed());
 
                 // Rig event deck with one Q2 on top
-                game.getEventDeck().addToDrawPile(new Card("Q2"));
+                game.getEventDeck().addToDrawPile(Card.of("Q2"));
                 break;
         }
     }
@@ -1,29 +1,157 @@
 package com.questgame;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.function.Predicate;
+import java.util.random.RandomGenerator;
 
 public class Deck {
     // The 'deck' cards are drawn from is referred to as the 'draw pile';
     // the 'Deck' class refers to the linked pair of draw and discard piles.
-    private final List<Card> drawPile;
-    private final List<Card> discardPile;
+    // Both piles share one circular buffer of CardCodec ordinals: the draw pile runs from its top
+    // card at index 'top' towards its bottom, and the discard pile follows straight after it.
+    // Drawing frees the slot before the draw pile, and once the draw pile is empty the discard pile
+    // starts at 'top', so it can become the new draw pile without moving any cards.
+    private byte[] cards;
+    private int top;
+    private int drawPileSize;
+    private int discardPileSize;
+    private CountedRandom random; // Source of randomness for shuffles
+    private ShuffleMode shuffleMode;
+    // Number of cards at the bottom of the draw pile that are shuffled but not yet put in a random
+    // order (always 0 unless shuffling LAZY).
+    private int unshuffled;
+    // Number of copies of each card in each pile, by CardCodec ordinal; kept up to date on every
+    // change so composition queries never have to scan the piles.
+    private int[] drawPileCounts;
+    private int[] discardPileCounts;
 
     public Deck() {
-        this.drawPile = new ArrayList<>();
-        this.discardPile = new ArrayList<>();
+        this(0);
+    }
+
+    public Deck(final int capacity) {
+        this(capacity, new SplittableRandom());
+    }
+
+    // Create a deck with room for the given number of cards (it grows if more are added), shuffled
+    // with the given random source. The source is used only by this deck; give each deck its own
+    // (e.g. by splitting one seeded SplittableRandom) for reproducible, contention-free shuffles.
+    public Deck(final int capacity, final RandomGenerator random) {
+        this(capacity, random, ShuffleMode.EAGER);
+    }
+
+    public Deck(final int capacity, final RandomGenerator random, final ShuffleMode shuffleMode) {
+        this.random = new CountedRandom(random);
+        this.shuffleMode = shuffleMode;
+        this.unshuffled = 0;
+        this.drawPileCounts = new int[CardCodec.STANDARD_CARD_COUNT];
+        this.discardPileCounts = new int[CardCodec.STANDARD_CARD_COUNT];
+        this.cards = new byte[capacity];
+        this.top = 0;
+        this.drawPileSize = 0;
+        this.discardPileSize = 0;
+    }
+
+    // Create a copy of the given deck, with its cards in the same order, that shuffles with the
+    // given random source.
+    public Deck(final Deck source, final RandomGenerator random) {
+        this.random = new CountedRandom(random);
+        this.shuffleMode = source.shuffleMode;
+        this.unshuffled = source.unshuffled;
+        this.drawPileCounts = source.drawPileCounts.clone();
+        this.discardPileCounts = source.discardPileCounts.clone();
+        this.cards = source.cards.clone();
+        this.top = source.top;
+        this.drawPileSize = source.drawPileSize;
+        this.discardPileSize = source.discardPileSize;
+    }
+
+    // Write the piles of the deck, in order from the top of the draw pile, and how they are
+    // shuffled (see Game.snapshot()). The random source is saved as how many values the deck has
+    // taken from it since it was set, which readFrom() skips in a deck given the same source.
+    void writeTo(final ByteBuffer out) {
+        out.putLong(random.used);
+        out.put((byte) shuffleMode.ordinal());
+        out.putInt(drawPileSize);
+        out.putInt(discardPileSize);
+        out.putInt(unshuffled);
+        for (int i = 0; i < totalSize(); i++) {
+            out.put(cards[index(i)]);
+        }
+    }
+
+    // Return how many bytes writeTo() writes for this deck.
+    int writtenSize() {
+        return 21 + totalSize();
+    }
+
+    // Replace the piles of the deck with ones written by writeTo(), mapping each written ordinal
+    // to the ordinal of the same card in this process, and move the deck's random source on to
+    // where the written deck's was. That source must be the one the written deck started from
+    // (as a game's decks get from its seed) for the deck to shuffle as the written one would.
+    void readFrom(final ByteBuffer in, final byte[] ordinals) {
+        long used = in.getLong();
+        if (used < 0 || used > CountedRandom.MAX_SKIPPED) {
+            throw new IllegalArgumentException("Invalid random position in snapshot!");
+        }
+        shuffleMode = ShuffleMode.values()[in.get()];
+        int drawn = in.getInt();
+        int discarded = in.getInt();
+        int waiting = in.getInt();
+        if (drawn < 0 || discarded < 0 || waiting < 0 || waiting > drawn
+                || (long) drawn + discarded > in.remaining()) {
+            throw new IllegalArgumentException("Invalid deck sizes in snapshot!");
+        }
+        random.skip(used);
+
+        clearDeck();
+        ensureCapacity(drawn + discarded);
+        top = 0;
+        for (int i = 0; i < drawn; i++) {
+            byte ordinal = ordinals[in.get() & 0xFF];
+            cards[i] = ordinal;
+            drawPileCounts = countsWithRoomFor(drawPileCounts, ordinal);
+            drawPileCounts[ordinal & 0xFF]++;
+        }
+        for (int i = drawn; i < drawn + discarded; i++) {
+            byte ordinal = ordinals[in.get() & 0xFF];
+            cards[i] = ordinal;
+            discardPileCounts = countsWithRoomFor(discardPileCounts, ordinal);
+            discardPileCounts[ordinal & 0xFF]++;
+        }
+        drawPileSize = drawn;
+        discardPileSize = discarded;
+        unshuffled = waiting;
     }
 
     // Empties the deck of all cards.
     public void clearDeck() {
-        drawPile.clear();
-        discardPile.clear();
+        top = 0;
+        unshuffled = 0;
+        Arrays.fill(drawPileCounts, 0);
+        Arrays.fill(discardPileCounts, 0);
+        drawPileSize = 0;
+        discardPileSize = 0;
     }
 
     // Takes one card from the top of the draw pile.
     public Card draw() {
-        Card drawn = drawPile.removeLast();
+        if (drawPileSize == 0) {
+            throw new NoSuchElementException("Cannot draw from an empty deck!");
+        }
+        if (unshuffled == drawPileSize) {
+            // Only shuffled cards remain: pick the card drawn uniformly from all of them
+            swap(top, index(random.nextInt(unshuffled)));
+            unshuffled--;
+        }
+        Card drawn = CardCodec.decode(cards[top]);
+        drawPileCounts[cards[top] & 0xFF]--;
+        top = index(1);
+        drawPileSize--;
         refresh();
         return drawn;
     }
@@ -35,16 +163,34 @@ public class Deck {
 
     // Adds n copies of the given card to the draw pile.
     public void addToDrawPile(final Card card, final int n) {
-        drawPile.addAll(Collections.nCopies(n, card));
+        ensureCapacity(totalSize() + n);
+        byte ordinal = CardCodec.encode(card);
+        for (int i = 0; i < n; i++) {
+            putOnTop(ordinal);
+        }
+        drawPileCounts = countsWithRoomFor(drawPileCounts, ordinal);
+        drawPileCounts[ordinal & 0xFF] += n;
     }
 
     public void addToDiscardPile(final Card c) {
-        discardPile.addLast(c);
+        ensureCapacity(totalSize() + 1);
+        byte ordinal = CardCodec.encode(c);
+        cards[index(totalSize())] = ordinal;
+        discardPileCounts = countsWithRoomFor(discardPileCounts, ordinal);
+        discardPileCounts[ordinal & 0xFF]++;
+        discardPileSize++;
         refresh();
     }
 
+    // Adds the given cards to the draw pile in order; the last card given will be drawn first.
     public void addToDrawPile(final List<Card> cards) {
-        drawPile.addAll(cards);
+        ensureCapacity(totalSize() + cards.size());
+        for (final Card c : cards) {
+            byte ordinal = CardCodec.encode(c);
+            putOnTop(ordinal);
+            drawPileCounts = countsWithRoomFor(drawPileCounts, ordinal);
+            drawPileCounts[ordinal & 0xFF]++;
+        }
     }
 
     // Returns the total number of cards in the deck and its discard pile.
@@ -56,17 +202,120 @@ public class Deck {
 
     // Returns the number of cards in the deck's draw pile.
     public int drawPileSize() {
-        return drawPile.size();
+        return drawPileSize;
     }
 
     // Returns the number of cards in the deck's discard pile.
     public int discardPileSize() {
-        return discardPile.size();
+        return discardPileSize;
+    }
+
+    // Replace the source of randomness used for future shuffles.
+    public void setRandom(final RandomGenerator random) {
+        this.random = new CountedRandom(random);
+    }
+
+    // Returns the number of copies of the given card in the draw pile.
+    public int countInDrawPile(final Card c) {
+        int ordinal = CardCodec.ordinal(c);
+        return ordinal < drawPileCounts.length ? drawPileCounts[ordinal] : 0;
+    }
+
+    // Returns the number of cards in the draw pile matching the filter (e.g. Foes above 30).
+    // The filter is called once per distinct card, not once per card.
+    public int countInDrawPile(final Predicate<Card> filter) {
+        return countMatching(drawPileCounts, filter);
+    }
+
+    // Returns the number of copies of the given card in the discard pile.
+    public int countInDiscardPile(final Card c) {
+        int ordinal = CardCodec.ordinal(c);
+        return ordinal < discardPileCounts.length ? discardPileCounts[ordinal] : 0;
     }
 
-    // Shuffles the draw pile (but not the discard pile).
+    public int countInDiscardPile(final Predicate<Card> filter) {
+        return countMatching(discardPileCounts, filter);
+    }
+
+    // Returns the probability of drawing at least 'atLeast' cards matching the filter in the next
+    // 'draws' draws from the draw pile, assuming it is in a random order (i.e. it was shuffled,
+    // and not rigged since). Draws beyond the current draw pile are not considered, since the
+    // discard pile is only shuffled in once the draw pile runs out.
+    public double drawProbability(final Predicate<Card> filter, final int draws,
+            final int atLeast) {
+        return hypergeometricAtLeast(drawPileSize, countInDrawPile(filter),
+                Math.min(draws, drawPileSize), atLeast);
+    }
+
+    // Probability that drawing n items without replacement from a population of the given size,
+    // containing the given number of successes, yields at least k successes.
+    public static double hypergeometricAtLeast(final int population, final int successes,
+            final int n, final int k) {
+        final int min = Math.max(0, n - (population - successes)); // Fewest successes possible
+        final int max = Math.min(n, successes); // Most successes possible
+        if (k <= min) {
+            return 1.0;
+        } else if (k > max) {
+            return 0.0;
+        }
+
+        // P(X = x) = C(K, x) * C(N - K, n - x) / C(N, n); sum the upper tail from x = k
+        double p = Math.exp(logChoose(successes, k) + logChoose(population - successes, n - k)
+                - logChoose(population, n));
+        double total = 0;
+        for (int x = k; x <= max; x++) {
+            total += p;
+            // Ratio P(X = x + 1) / P(X = x)
+            p *= (double) (successes - x) * (n - x)
+                    / ((double) (x + 1) * (population - successes - n + x + 1));
+        }
+        return Math.min(1.0, total);
+    }
+
+    private static double logChoose(final int n, final int k) {
+        double result = 0;
+        for (int i = 1; i <= k; i++) {
+            result += Math.log(n - k + i) - Math.log(i);
+        }
+        return result;
+    }
+
+    private static int countMatching(final int[] counts, final Predicate<Card> filter) {
+        int total = 0;
+        for (int ordinal = 0; ordinal < counts.length; ordinal++) {
+            if (counts[ordinal] > 0 && filter.test(CardCodec.decode(ordinal))) {
+                total += counts[ordinal];
+            }
+        }
+        return total;
+    }
+
+    // Return the given counts, grown if needed to hold a count for the given ordinal.
+    private static int[] countsWithRoomFor(final int[] counts, final byte ordinal) {
+        int i = ordinal & 0xFF;
+        return i < counts.length ? counts : Arrays.copyOf(counts, i + 1);
+    }
+
+    public ShuffleMode getShuffleMode() {
+        return shuffleMode;
+    }
+
+    // Change how future shuffles are done; cards still waiting on a LAZY shuffle are shuffled now.
+    public void setShuffleMode(final ShuffleMode shuffleMode) {
+        if (unshuffled > 0) {
+            shuffleRange(drawPileSize - unshuffled, unshuffled);
+            unshuffled = 0;
+        }
+        this.shuffleMode = shuffleMode;
+    }
+
+    // Shuffles the draw pile (but not the discard pile), in place.
     public void shuffleDeck() {
-        Collections.shuffle(drawPile);
+        if (shuffleMode == ShuffleMode.LAZY) {
+            unshuffled = drawPileSize; // Cards are picked at random when drawn instead
+        } else {
+            shuffleRange(0, drawPileSize);
+        }
     }
 
     // Call whenever the draw pile may run out of cards after an operation;
@@ -74,9 +323,97 @@ public class Deck {
     // pile.
     private void refresh() {
         if (drawPileSize() == 0 && discardPileSize() > 0) {
-            drawPile.addAll(discardPile); // Copy over all cards in discard pile to draw pile
-            discardPile.clear(); // Clear discard pile
+            // The discard pile already starts at the top of the empty draw pile
+            drawPileSize = discardPileSize;
+            discardPileSize = 0;
+            int[] emptied = drawPileCounts;
+            drawPileCounts = discardPileCounts;
+            discardPileCounts = emptied;
             shuffleDeck();
         }
     }
+
+    // Fisher-Yates shuffle of the n cards starting at the given offset from the top of the draw
+    // pile.
+    private void shuffleRange(final int offset, final int n) {
+        for (int i = n - 1; i > 0; i--) {
+            swap(index(offset + i), index(offset + random.nextInt(i + 1)));
+        }
+    }
+
+    private void swap(final int a, final int b) {
+        byte swap = cards[a];
+        cards[a] = cards[b];
+        cards[b] = swap;
+    }
+
+    // Return the buffer index of the card at the given offset from the top of the draw pile.
+    private int index(final int offset) {
+        int i = top + offset;
+        return i >= cards.length ? i - cards.length : i;
+    }
+
+    // Place a card above the current top of the draw pile; capacity must already be ensured.
+    private void putOnTop(final byte ordinal) {
+        top = top == 0 ? cards.length - 1 : top - 1;
+        cards[top] = ordinal;
+        drawPileSize++;
+    }
+
+    // Grow the buffer if it cannot hold the given number of cards, unwrapping it to start at 0.
+    private void ensureCapacity(final int capacity) {
+        if (capacity <= cards.length) {
+            return;
+        }
+
+        byte[] grown = new byte[Math.max(capacity, cards.length * 2)];
+        for (int i = 0; i < totalSize(); i++) {
+            grown[i] = cards[index(i)];
+        }
+        cards = grown;
+        top = 0;
+    }
+
+    // A deck's random source, counting the values taken from it. Every bounded value a shuffle
+    // takes is built from these by RandomGenerator's own methods, just as the source itself would
+    // build it, so counting changes nothing that is drawn.
+    private static final class CountedRandom implements RandomGenerator {
+        private static final long MAX_SKIPPED = 1L << 24; // Far more than any game takes
+
+        private final RandomGenerator source;
+        private long used;
+
+        private CountedRandom(final RandomGenerator source) {
+            this.source = source;
+        }
+
+        @Override
+        public int nextInt() {
+            used++;
+            return source.nextInt();
+        }
+
+        @Override
+        public long nextLong() {
+            used++;
+            return source.nextLong();
+        }
+
+        // Take the given number of values, as a deck did before it was written.
+        private void skip(final long n) {
+            for (long i = 0; i < n; i++) {
+                nextLong();
+            }
+        }
+    }
+
+    // How the draw pile is shuffled.
+    // EAGER puts the whole pile in a random order straight away. LAZY instead picks a uniformly
+    // random remaining card on each draw (an incremental Fisher-Yates shuffle), which gives the same
+    // distribution of draws but skips the work for cards that are never drawn. Cards added to the
+    // draw pile after a shuffle (e.g. to rig a deck) are drawn in order before any shuffled card,
+    // in both modes.
+    public enum ShuffleMode {
+        EAGER, LAZY
+    }
 }
@@ -1,30 +1,44 @@
 package com.questgame;
 
-import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.util.*;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 public final class Game {
     public static final int FLUSH_LINES = 1;
-    private static List<String> currCardSelectMenu = new ArrayList<>();
-
-    private static PrintWriter output = new PrintWriter(OutputStream.nullOutputStream());
-    private static Scanner input = new Scanner("");
-    private static boolean echoInput = false;
-    private static boolean selectionMenuRedirected = false;
+    public static final int ADVENTURE_DECK_SIZE = 100; // Number of cards in a standard deck
+    public static final int EVENT_DECK_SIZE = 17;
+    public static final int SNAPSHOT_MAGIC = 0x51475353; // "QGSS"
+    public static final int SNAPSHOT_VERSION = 2;
 
+    private final GameIO io; // Text input and output of this game
+    private final long seed; // Seed for all randomness in the game; see initDecks()
     private final Deck adventureDeck;
     private final Deck eventDeck;
     private final List<Player> playerList; // Ordered list of players + their turn orders
     private int currPlayerIndex; // Index of player list denoting whose turn it is in the game.
+    private Journal journal; // Records what happens in the game, or null
+    private final List<GameListener> listeners; // Told of every event in the game
+    private final TextRenderer textRenderer; // Writes events to the output, or null if none
 
     // Turn-specific variables
     private Card currentEvent;
     private Player sponsor;
-    private List<List<Card>> questStages;
+    private List<byte[]> questStages; // Cards of each stage, as CardCodec ordinals
     private int stageNum;
     private List<Player> eligible;
 
+    // Statistics over the whole game
+    private int turnCount; // Turns started so far
+    private int questsSponsored; // Quests that found a sponsor so far
+
+    // The decision the game is waiting on text input for, or null; other threads (e.g. a request
+    // for advice) can read the game's state while it is set, as the game cannot change until then.
+    private volatile Advisor.Question pendingQuestion;
+
     public Game() {
         this(null, null);
     }
@@ -38,19 +52,56 @@ public final class Game {
     }
 
     public Game(Scanner input, PrintWriter output) {
-        if (input != null) {
-            Game.input = input;
-        }
-        if (output != null) {
-            Game.output = output;
+        this(input, output, new SplittableRandom().nextLong());
+    }
+
+    // Copy the state of another game, e.g. to play out possible futures without changing it (see
+    // Advisor). The copy reads no input, discards its output and shuffles from the given seed;
+    // agents are not copied.
+    Game(final Game source, final long seed) {
+        this.io = new GameIO();
+        this.listeners = new ArrayList<>();
+        this.textRenderer = null;
+        this.seed = seed;
+        SplittableRandom random = new SplittableRandom(seed);
+        this.adventureDeck = new Deck(source.adventureDeck, random.split());
+        this.eventDeck = new Deck(source.eventDeck, random.split());
+        this.playerList = new ArrayList<>();
+        for (final Player p : source.playerList) {
+            playerList.add(new Player(p, io, adventureDeck));
         }
+        this.currPlayerIndex = source.currPlayerIndex;
 
-        echoInput = false;
-        currCardSelectMenu = new ArrayList<>();
-        selectionMenuRedirected = false;
+        this.currentEvent = source.currentEvent;
+        this.sponsor =
+                source.sponsor == null ? null : playerList.get(source.seatOf(source.sponsor));
+        this.questStages = new ArrayList<>(source.questStages); // Stages are never changed
+        this.eligible = new ArrayList<>();
+        for (final Player p : source.eligible) {
+            eligible.add(playerList.get(source.seatOf(p)));
+        }
+        this.stageNum = source.stageNum;
+        this.turnCount = source.turnCount;
+        this.questsSponsored = source.questsSponsored;
+    }
 
-        this.adventureDeck = new Deck();
-        this.eventDeck = new Deck();
+    // Create a game whose decks are shuffled from the given seed; games with the same seed and
+    // the same player decisions play out identically.
+    // Events are written to the output as text by a TextRenderer; a game with no output has no
+    // listeners, so builds no text for it.
+    public Game(Scanner input, PrintWriter output, long seed) {
+        this.io = new GameIO(input, output);
+        this.listeners = new ArrayList<>();
+        this.textRenderer = output != null ? new TextRenderer(io) : null;
+        if (textRenderer != null) {
+            listeners.add(textRenderer);
+        }
+        this.seed = seed;
+        // Decks are shuffled as cards are drawn; most games end long before a deck is used up.
+        // Each deck gets its own random stream split from the seed, as in initDecks().
+        SplittableRandom random = new SplittableRandom(seed);
+        this.adventureDeck = new Deck(ADVENTURE_DECK_SIZE, random.split(), Deck.ShuffleMode.LAZY);
+        this.eventDeck = new Deck(EVENT_DECK_SIZE, random.split(), Deck.ShuffleMode.LAZY);
         this.playerList = new ArrayList<>();
         this.currPlayerIndex = 0; // Game starts with the first player in the list
 
@@ -59,6 +110,8 @@ public final class Game {
         this.questStages = new ArrayList<>();
         this.eligible = new ArrayList<>();
         this.stageNum = 0;
+        this.turnCount = 0;
+        this.questsSponsored = 0;
     }
 
     static String buildDiscardString(final List<Card> cardSource, final Card toDiscard) {
@@ -116,49 +169,12 @@ public final class Game {
         return total;
     }
 
-    // Displays a prompt to select cards from a 1-indexed list; returns the user input.
-    // Note: Must -1 from user index selection since the displayed is 1-index, not the card list's
-    // true 0-index
-    static String cardSelection(final String prompt, final List<Card> cards) {
-        currCardSelectMenu.clear();
-        output.println(prompt);
-
-        if (cards.isEmpty()) {
-            output.println("[-] (no cards)");
-        } else {
-            int i = 0;
-            for (final Card c : cards) {
-                currCardSelectMenu.add(c.getCardID());
-                if (!Game.selectionMenuRedirected) {
-                    output.println((i + 1) + " - " + c.getCardID());
-                }
-                i++;
-            }
-        }
-        output.print("> ");
-        output.flush();
-
-        String nextLine = getInputNextLine();
-        currCardSelectMenu.clear();
-        return nextLine;
-    }
-
-    private static String getInputNextLine() {
-        output.flush();
-        String nextLine = input.nextLine();
-        if (echoInput) {
-            if (nextLine.isEmpty()) {
-                output.println("(<return> key pressed)");
-            } else {
-                output.println(nextLine);
-            }
-            output.flush();
-        }
-        return nextLine;
+    public List<String> getCurrentCardsInSelectMenu() {
+        return io.getCurrentCardsInSelectMenu();
     }
 
-    public List<String> getCurrentCardsInSelectMenu() {
-        return Game.currCardSelectMenu;
+    public GameIO getIO() {
+        return io;
     }
 
     private void initTurnVars() {
@@ -170,11 +186,11 @@ public final class Game {
     }
 
     public void enableInputEcho() {
-        echoInput = true;
+        io.enableInputEcho();
     }
 
     public void setSelectionMenuRedirected() {
-        selectionMenuRedirected = true;
+        io.setSelectionMenuRedirected();
     }
 
     // Returns an unmodifiable view of the current eligible player list.
@@ -192,7 +208,11 @@ public final class Game {
 
     // Returns an unmodifiable view of the current list of quest stages.
     public List<List<Card>> viewQuestStages() {
-        return List.copyOf(questStages);
+        List<List<Card>> stages = new ArrayList<>(questStages.size());
+        for (final byte[] stage : questStages) {
+            stages.add(Collections.unmodifiableList(CardCodec.decode(stage)));
+        }
+        return Collections.unmodifiableList(stages);
     }
 
     public int getStageNum() {
@@ -204,7 +224,10 @@ public final class Game {
     }
 
     public void setQuestStages(final List<List<Card>> questStages) {
-        this.questStages = new ArrayList<>(questStages);
+        this.questStages = new ArrayList<>(questStages.size());
+        for (final List<Card> stage : questStages) {
+            this.questStages.add(CardCodec.encode(stage));
+        }
     }
 
     public Player getSponsor() {
@@ -218,25 +241,24 @@ public final class Game {
     // The sponsor does not discard the cards used in the quest until the quest is finished.
     // This returns the sponsor's hand without the cards used in the quest so far.
     public List<Card> viewEffectiveSponsorHand() {
-        // Flattened, ordered list of cards used in the quest so far
-        List<Card> usedCards = new ArrayList<>();
-        questStages.forEach(usedCards::addAll);
-
-        List<Card> effectiveHand = new ArrayList<>(sponsor.viewHand());
-        for (final Card used : usedCards) {
-            if (!effectiveHand.remove(used)) {
-                throw new RuntimeException(
-                        "A card used in a previous stage was not found anymore in the sponsor "
-                                + "hand!");
+        Hand effectiveHand = new Hand(sponsor.getHand());
+        for (final byte[] stage : questStages) {
+            for (final byte ordinal : stage) {
+                if (!effectiveHand.remove(CardCodec.decode(ordinal))) {
+                    throw new RuntimeException("A card used in a previous stage was not found"
+                            + " anymore in the sponsor hand!");
+                }
             }
         }
         return effectiveHand;
     }
 
     public int cardsInQuest() {
-        List<Card> usedCards = new ArrayList<>();
-        questStages.forEach(usedCards::addAll);
-        return usedCards.size();
+        int count = 0;
+        for (final byte[] stage : questStages) {
+            count += stage.length;
+        }
+        return count;
     }
 
     public int questLength() {
@@ -253,7 +275,7 @@ public final class Game {
 
     // Overwrites existing input with the given string.
     public void addInput(final String string) {
-        input = new Scanner(string);
+        io.setInput(string);
     }
 
     // Return the corresponding player from the index, wrapping around if
@@ -262,41 +284,270 @@ public final class Game {
         return playerList.get(i % playerList.size());
     }
 
+    public int getTurnCount() {
+        return turnCount;
+    }
+
+    public int getQuestsSponsored() {
+        return questsSponsored;
+    }
+
+    // Return the decision the game is waiting on text input for, or null if there is none.
+    public Advisor.Question getPendingQuestion() {
+        return pendingQuestion;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // Save the state of the game in a compact binary form, to be restored with restore(): both
+    // decks in order, every player's hand and shields, whose turn it is, and the event, sponsor,
+    // stages and eligible players of the turn in progress, and how far each deck is into the random
+    // stream it gets from the seed. Agents, the journal and the I/O are not saved. Take snapshots
+    // between decisions, not from inside an agent.
+    // The format starts with SNAPSHOT_MAGIC and SNAPSHOT_VERSION. Cards are CardCodec ordinals;
+    // non-standard cards, whose ordinals differ between processes, are described in full up front.
+    public byte[] snapshot() {
+        int size = 64 + adventureDeck.writtenSize() + eventDeck.writtenSize() + cardsInQuest()
+                + 2 * questStages.size();
+        for (final Player p : playerList) {
+            size += 16 + p.getHandSize();
+        }
+        List<byte[]> otherCardNames = new ArrayList<>();
+        for (int ordinal = CardCodec.STANDARD_CARD_COUNT; ordinal < CardCodec.ordinalCount();
+                ordinal++) {
+            otherCardNames.add(CardCodec.decode(ordinal).getName().getBytes(UTF_8));
+            size += 9 + otherCardNames.getLast().length;
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(SNAPSHOT_MAGIC);
+        out.put((byte) SNAPSHOT_VERSION);
+        out.putLong(seed);
+        out.putInt(turnCount);
+        out.putInt(questsSponsored);
+
+        out.putShort((short) otherCardNames.size());
+        for (int i = 0; i < otherCardNames.size(); i++) {
+            Card c = CardCodec.decode(CardCodec.STANDARD_CARD_COUNT + i);
+            out.put((byte) c.getCardType().ordinal());
+            out.putChar(c.getCardID().charAt(0));
+            out.putInt(c.getValue());
+            out.putShort((short) otherCardNames.get(i).length);
+            out.put(otherCardNames.get(i));
+        }
+
+        out.put((byte) playerList.size());
+        for (final Player p : playerList) {
+            out.putInt(p.getNumber());
+            out.putInt(p.getShields());
+            out.putShort((short) p.getHandSize());
+            for (final Card c : p.getHand()) {
+                out.put(CardCodec.encode(c));
+            }
+        }
+
+        out.put((byte) currPlayerIndex);
+        out.putShort((short) (currentEvent == null ? -1 : CardCodec.ordinal(currentEvent)));
+        out.put((byte) (sponsor == null ? -1 : seatOf(sponsor)));
+        out.put((byte) stageNum);
+        out.put((byte) eligible.size());
+        for (final Player p : eligible) {
+            out.put((byte) seatOf(p));
+        }
+        out.put((byte) questStages.size());
+        for (final byte[] stage : questStages) {
+            out.put((byte) stage.length);
+            out.put(stage);
+        }
+
+        adventureDeck.writeTo(out);
+        eventDeck.writeTo(out);
+        return Arrays.copyOf(out.array(), out.position());
+    }
+
+    public static Game restore(final byte[] snapshot) {
+        return restore(snapshot, null, null);
+    }
+
+    // Create a game in the state saved by snapshot(), with the given input and output. The decks
+    // pick up their random streams from the seed where the saved game's were, so the restored game
+    // deals exactly what the saved one would have (unless its decks had been given other random
+    // sources with Deck.setRandom()).
+    public static Game restore(final byte[] snapshot, final Scanner input,
+            final PrintWriter output) {
+        ByteBuffer in = ByteBuffer.wrap(snapshot);
+        try {
+            if (in.getInt() != SNAPSHOT_MAGIC) {
+                throw new IllegalArgumentException("Not a game snapshot!");
+            }
+            int version = in.get();
+            if (version != SNAPSHOT_VERSION) {
+                throw new IllegalArgumentException(
+                        "Unsupported game snapshot version " + version + "!");
+            }
+
+            Game game = new Game(input, output, in.getLong());
+            game.turnCount = in.getInt();
+            game.questsSponsored = in.getInt();
+
+            // Map saved ordinals to the ordinals of the same cards in this process
+            byte[] ordinals = new byte[CardCodec.MAX_ORDINALS];
+            for (int i = 0; i < ordinals.length; i++) {
+                ordinals[i] = (byte) i;
+            }
+            int otherCards = in.getShort();
+            if (otherCards < 0 || otherCards > ordinals.length - CardCodec.STANDARD_CARD_COUNT) {
+                throw new IllegalArgumentException("Invalid card count in game snapshot!");
+            }
+            for (int i = 0; i < otherCards; i++) {
+                Card.CardType type = Card.CardType.values()[in.get()];
+                char symbol = in.getChar();
+                if (!Character.isUpperCase(symbol)) { // Card() would throw a plain RuntimeException
+                    throw new IllegalArgumentException("Invalid card in game snapshot!");
+                }
+                int value = in.getInt();
+                byte[] name = new byte[checkLength(in, in.getShort())];
+                in.get(name);
+                ordinals[CardCodec.STANDARD_CARD_COUNT + i] = CardCodec.encode(
+                        new Card(type, new String(name, UTF_8), symbol, value));
+            }
+
+            int players = in.get();
+            for (int i = 0; i < players; i++) {
+                Player p = new Player(in.getInt(), game.io, game.adventureDeck);
+                p.addShields(in.getInt());
+                int handSize = checkLength(in, in.getShort());
+                p.getHand().addAll(readCards(in, handSize, ordinals)); // No trim
+                game.playerList.add(p);
+            }
+
+            game.currPlayerIndex = in.get();
+            int event = in.getShort();
+            game.currentEvent = event < 0 ? null : CardCodec.decode(ordinals[event] & 0xFF);
+            int sponsorSeat = in.get();
+            game.sponsor = sponsorSeat < 0 ? null : game.playerList.get(sponsorSeat);
+            game.stageNum = in.get();
+            int eligible = in.get();
+            for (int i = 0; i < eligible; i++) {
+                game.eligible.add(game.playerList.get(in.get()));
+            }
+            int stages = in.get();
+            for (int i = 0; i < stages; i++) {
+                game.questStages.add(
+                        CardCodec.encode(readCards(in, checkLength(in, in.get()), ordinals)));
+            }
+
+            game.adventureDeck.readFrom(in, ordinals);
+            game.eventDeck.readFrom(in, ordinals);
+            return game;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException
+                | NegativeArraySizeException e) {
+            throw new IllegalArgumentException("Game snapshot is truncated or corrupt!", e);
+        }
+    }
+
+    // Return the given length of something about to be read, one byte per item at least, if the
+    // snapshot has that many bytes left, so a corrupt length never has room allocated for it.
+    private static int checkLength(final ByteBuffer in, final int length) {
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("Invalid length " + length + " in game snapshot!");
+        }
+        return length;
+    }
+
+    private static List<Card> readCards(final ByteBuffer in, final int count,
+            final byte[] ordinals) {
+        List<Card> cards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            cards.add(CardCodec.decode(ordinals[in.get() & 0xFF]));
+        }
+        return cards;
+    }
+
+    // Tell the given listener of every event in the game from now on.
+    public void addListener(final GameListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(final GameListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Quiet mode: write no text output at all, without building any of it, and do not pause at the
+    // end of a turn for players to read the screen (see printTurnEndOf()); input is still read for
+    // decisions made from text. Events are still published to any other listeners.
+    public void setQuiet(final boolean quiet) {
+        io.setQuiet(quiet);
+        if (textRenderer != null) {
+            listeners.remove(textRenderer);
+            if (!quiet) {
+                listeners.addFirst(textRenderer);
+            }
+        }
+    }
+
+    // Whether anyone is told of events; events are not even created if not.
+    private boolean listening() {
+        return !listeners.isEmpty();
+    }
+
+    private void publish(final GameEvent event) {
+        for (final GameListener listener : listeners) {
+            listener.onEvent(event);
+        }
+    }
+
+    // Record everything that happens in the game from now on in the given journal, or stop
+    // recording if null. Set it before initGame() for the journal to hold the whole game.
+    public void setJournal(final Journal journal) {
+        this.journal = journal;
+        for (final Player p : playerList) {
+            p.setJournal(journal, seatOf(p));
+        }
+    }
+
     // Set up the decks of a standard game, clearing the current decks (acting as a reset).
+    // Each deck gets its own random stream split from the game's seed.
     public void initDecks() {
         adventureDeck.clearDeck();
         eventDeck.clearDeck();
 
+        SplittableRandom random = new SplittableRandom(seed);
+        adventureDeck.setRandom(random.split());
+        eventDeck.setRandom(random.split());
+
         // Foe
-        adventureDeck.addToDrawPile(new Card("F5"), 8);
-        adventureDeck.addToDrawPile(new Card("F10"), 7);
-        adventureDeck.addToDrawPile(new Card("F15"), 8);
-        adventureDeck.addToDrawPile(new Card("F20"), 7);
-        adventureDeck.addToDrawPile(new Card("F25"), 7);
-        adventureDeck.addToDrawPile(new Card("F30"), 4);
-        adventureDeck.addToDrawPile(new Card("F35"), 4);
-        adventureDeck.addToDrawPile(new Card("F40"), 2);
-        adventureDeck.addToDrawPile(new Card("F50"), 2);
-        adventureDeck.addToDrawPile(new Card("F70"), 1);
+        adventureDeck.addToDrawPile(Card.of("F5"), 8);
+        adventureDeck.addToDrawPile(Card.of("F10"), 7);
+        adventureDeck.addToDrawPile(Card.of("F15"), 8);
+        adventureDeck.addToDrawPile(Card.of("F20"), 7);
+        adventureDeck.addToDrawPile(Card.of("F25"), 7);
+        adventureDeck.addToDrawPile(Card.of("F30"), 4);
+        adventureDeck.addToDrawPile(Card.of("F35"), 4);
+        adventureDeck.addToDrawPile(Card.of("F40"), 2);
+        adventureDeck.addToDrawPile(Card.of("F50"), 2);
+        adventureDeck.addToDrawPile(Card.of("F70"), 1);
 
         // Weapon
-        adventureDeck.addToDrawPile(new Card("D5"), 6);
-        adventureDeck.addToDrawPile(new Card("S10"), 16);
-        adventureDeck.addToDrawPile(new Card("H10"), 12);
-        adventureDeck.addToDrawPile(new Card("B15"), 8);
-        adventureDeck.addToDrawPile(new Card("L20"), 6);
-        adventureDeck.addToDrawPile(new Card("E30"), 2);
+        adventureDeck.addToDrawPile(Card.of("D5"), 6);
+        adventureDeck.addToDrawPile(Card.of("S10"), 16);
+        adventureDeck.addToDrawPile(Card.of("H10"), 12);
+        adventureDeck.addToDrawPile(Card.of("B15"), 8);
+        adventureDeck.addToDrawPile(Card.of("L20"), 6);
+        adventureDeck.addToDrawPile(Card.of("E30"), 2);
 
         // Quest
-        eventDeck.addToDrawPile(new Card("Q2"), 3);
-        eventDeck.addToDrawPile(new Card("Q3"), 4);
-        eventDeck.addToDrawPile(new Card("Q4"), 3);
-        eventDeck.addToDrawPile(new Card("Q5"), 2);
+        eventDeck.addToDrawPile(Card.of("Q2"), 3);
+        eventDeck.addToDrawPile(Card.of("Q3"), 4);
+        eventDeck.addToDrawPile(Card.of("Q4"), 3);
+        eventDeck.addToDrawPile(Card.of("Q5"), 2);
 
         // Event
-        eventDeck.addToDrawPile(new Card("Plague"), 1);
-        eventDeck.addToDrawPile(new Card("Queen's Favor"), 2);
-        eventDeck.addToDrawPile(new Card("Prosperity"), 2);
+        eventDeck.addToDrawPile(Card.of("Plague"), 1);
+        eventDeck.addToDrawPile(Card.of("Queen's Favor"), 2);
+        eventDeck.addToDrawPile(Card.of("Prosperity"), 2);
 
         adventureDeck.shuffleDeck();
         eventDeck.shuffleDeck();
@@ -306,18 +557,24 @@ public final class Game {
     public void initGame() {
         playerList.clear();
 
+        if (journal != null) {
+            journal.seed(seed);
+        }
         initDecks(); // Decks must be initialised for players to be able to draw cards
 
         currPlayerIndex = 0;
+        turnCount = 0;
+        questsSponsored = 0;
 
         final int NUM_PLAYERS = 4;
         final int DRAW_COUNT = 12;
 
         for (int i = 0; i < NUM_PLAYERS; i++) {
             int playerNumber = i + 1;
-            Player newPlayer = new Player(playerNumber);
-            newPlayer.addToHand(drawAdventureCards(DRAW_COUNT));
+            Player newPlayer = new Player(playerNumber, io, adventureDeck);
             playerList.add(newPlayer);
+            newPlayer.setJournal(journal, seatOf(newPlayer));
+            newPlayer.addToHand(drawAdventureCards(DRAW_COUNT));
         }
 
         initTurnVars();
@@ -336,7 +593,11 @@ public final class Game {
     }
 
     public Card drawAdventureCard() {
-        return adventureDeck.draw();
+        Card drawn = adventureDeck.draw();
+        if (journal != null) {
+            journal.adventureDraw(drawn);
+        }
+        return drawn;
     }
 
     // Draw n cards from the Adventure deck and return them in a list, maintaining draw order.
@@ -344,14 +605,21 @@ public final class Game {
         ArrayList<Card> drawnCards = new ArrayList<>();
 
         for (int i = 0; i < n; i++) {
-            drawnCards.add(drawAdventureCard());
+            drawnCards.add(adventureDeck.draw());
         }
 
+        if (journal != null) {
+            journal.adventureDraw(drawnCards);
+        }
         return drawnCards;
     }
 
     public Card drawEventCard() {
-        return eventDeck.draw();
+        Card drawn = eventDeck.draw();
+        if (journal != null) {
+            journal.eventDraw(drawn);
+        }
+        return drawn;
     }
 
     public void discard(final Card c) {
@@ -383,6 +651,11 @@ public final class Game {
         return playerList.get(currPlayerIndex);
     }
 
+    // Return the position of the given player in turn order, starting from 0.
+    public int seatOf(final Player p) {
+        return playerList.indexOf(p);
+    }
+
     // Set the current player to the supplied player.
     public void setCurrentPlayer(final Player p) {
         currPlayerIndex = playerList.indexOf(p);
@@ -408,11 +681,9 @@ public final class Game {
     // Print whose turn it is, and display that player's hand.
     public void printCurrentPlayerTurnStart() {
         Player currPlayer = getCurrentPlayer();
-
-        output.println("[" + currPlayer.getID() + "]'s Turn:");
-        output.println(currPlayer.getHandString());
-
-        output.flush();
+        if (listening()) {
+            publish(new GameEvent.TurnStarted(currPlayer.getID(), currPlayer.viewHand()));
+        }
     }
 
     // Return a list of players who have met the victory condition (7 or more shields).
@@ -431,21 +702,25 @@ public final class Game {
 
     // Print that the game has ended, and list the players given as the winners.
     public void printGameEnd(final List<Player> winners) {
-        output.println(
-                "\nThe game has concluded!" + "\nWinner(s): " + Player.playersToString(winners));
-        output.flush();
+        if (listening()) {
+            publish(new GameEvent.GameEnded(Player.playersToIDs(winners)));
+        }
     }
 
     public void printTurnEndOf(final Player player) {
-        output.print("The turn of " + player.getID() + " has ended!"
+        if (player.getAgent() != null || io.isQuiet()) {
+            return; // Nobody to wait on
+        }
+
+        io.print("The turn of " + player.getID() + " has ended!"
                 + "\nPress <return> to continue... > ");
-        output.flush();
+        io.flush();
 
-        getInputNextLine();
+        io.nextLine();
 
         // Flush display with several newlines
-        output.print("\n".repeat(FLUSH_LINES));
-        output.flush();
+        io.print("\n".repeat(FLUSH_LINES));
+        io.flush();
     }
 
     public void printCurrentEventCard() {
@@ -453,26 +728,12 @@ public final class Game {
             throw new RuntimeException("There is no current event card to print!");
         }
 
-        if (currentEvent.getCardType() == Card.CardType.QUEST) {
-            output.println("Drawing an Event card...");
-            output.println("A Quest of " + questLength() + " stages!");
-        } else if (currentEvent.getCardType() == Card.CardType.EVENT) {
-            output.println("Drawing an Event card...");
-
-            String eventDesc;
-
-            switch (currentEvent.getName()) {
-                case "Plague" -> eventDesc = "Current player loses 2 Shields";
-                case "Queen's Favor" -> eventDesc = "Current player draws 2 Adventure cards";
-                case "Prosperity" -> eventDesc = "All players draw 2 Adventure cards";
-                default -> throw new RuntimeException(
-                        "Undefined event card '" + currentEvent.getName() + "'!");
+        if (currentEvent.getCardType() == Card.CardType.QUEST
+                || currentEvent.getCardType() == Card.CardType.EVENT) {
+            if (listening()) {
+                publish(new GameEvent.EventDrawn(currentEvent));
             }
-
-            output.println("Event: " + currentEvent.getName() + " - " + eventDesc);
         }
-
-        output.flush();
     }
 
     // Applies the given E card event's effects to the appropriate targets.
@@ -482,18 +743,28 @@ public final class Game {
         switch (currentEvent.getName()) {
             case "Plague":
                 // Remove current player's shields
+                int shieldsBefore = currPlayer.getShields();
                 currPlayer.removeShields(questLength());
-                output.println("Your shield count is now " + currPlayer.getShields() + ".");
+                if (journal != null) {
+                    journal.shields(seatOf(currPlayer), currPlayer.getShields() - shieldsBefore);
+                }
+                if (listening()) {
+                    publish(new GameEvent.ShieldsLost(currPlayer.getID(),
+                            shieldsBefore - currPlayer.getShields(), currPlayer.getShields()));
+                }
                 break;
             case "Queen's Favor":
             case "Prosperity":
                 for (final Player p : getPlayersStartingCurrent()) {
                     List<Card> cards = drawAdventureCards(questLength());
 
-                    output.println(p.getID() + ": you drew " + Card.cardsToString(cards) + ".");
+                    if (listening()) {
+                        publish(new GameEvent.EventCardsDrawn(p.getID(), List.copyOf(cards)));
+                    }
                     p.addToHand(cards);
-                    output.println("Hand: " + p.getHandString());
-                    output.flush();
+                    if (listening()) {
+                        publish(new GameEvent.HandUpdated(p.getID(), p.viewHand()));
+                    }
 
                     if (Objects.equals(currentEvent.getName(), "Queen's Favor")) {
                         // Queen's Favor only affects current player (card drawer);
@@ -508,7 +779,7 @@ public final class Game {
                 throw new RuntimeException(
                         "undefined event card '" + currentEvent.getName() + "'!");
         }
-        output.flush();
+        io.flush();
         endTurn();
     }
 
@@ -518,29 +789,84 @@ public final class Game {
             throw new RuntimeException("Tried to find a sponsor while there already was one!");
         }
 
+        PlayerAgent agent = p.getAgent();
+        if (agent != null) {
+            boolean sponsored =
+                    agent.sponsor(new PlayerAgent.SponsorRequest(this, p, questLength()));
+            recordSponsor(p, sponsored);
+            if (sponsored) {
+                sponsor = p;
+                eligible.remove(p);
+            }
+            return;
+        }
+
         while (true) {
-            output.print(p.getID() + ": Would you like to sponsor this Quest of " + questLength()
+            io.print(p.getID() + ": Would you like to sponsor this Quest of " + questLength()
                     + " stages? (y/n) > ");
-            output.flush();
+            io.flush();
 
-            switch (getInputNextLine().toLowerCase()) {
+            switch (awaitAnswer(Advisor.Decision.SPONSOR, p).toLowerCase()) {
                 case "y" -> {
+                    recordSponsor(p, true);
                     sponsor = p;
                     eligible.remove(p);
                     return;
                 }
                 case "n" -> {
+                    recordSponsor(p, false);
                     printTurnEndOf(p);
                     return;
                 }
-                default -> output.println("Invalid input. Please input only 'y' or 'n'.");
+                default -> io.println("Invalid input. Please input only 'y' or 'n'.");
             }
         }
     }
 
+    private void recordSponsor(final Player p, final boolean sponsored) {
+        if (journal != null) {
+            journal.sponsor(seatOf(p), sponsored);
+        }
+    }
+
+    private void recordWithdraw(final Player p, final boolean withdrew) {
+        if (journal != null) {
+            journal.withdraw(seatOf(p), withdrew);
+        }
+    }
+
+    // Add a finished stage to the quest.
+    private void addStage(final List<Card> stageCards) {
+        byte[] stage = CardCodec.encode(stageCards);
+        if (journal != null) {
+            journal.stage(stage);
+        }
+        if (listening()) {
+            publish(new GameEvent.StageBuilt(questStages.size() + 1, List.copyOf(stageCards)));
+        }
+        questStages.addLast(stage);
+    }
+
+    // Read a player's answer to a decision, letting other threads see what is being waited on.
+    private String awaitAnswer(final Advisor.Decision decision, final Player p) {
+        pendingQuestion = new Advisor.Question(decision, p);
+        try {
+            return io.nextLine();
+        } finally {
+            pendingQuestion = null;
+        }
+    }
+
     // Helper method to prompt each player in turn to sponsor a quest of given length.
     public void promptPlayersToSponsor() {
-        for (final Player p : getPlayersStartingCurrent()) {
+        promptPlayersToSponsorFrom(getCurrentPlayer());
+    }
+
+    // Prompt players in turn order to sponsor, starting from the given player; players between the
+    // current player and them have already declined.
+    void promptPlayersToSponsorFrom(final Player first) {
+        List<Player> toPrompt = getPlayersStartingCurrent();
+        for (final Player p : toPrompt.subList(toPrompt.indexOf(first), toPrompt.size())) {
             promptToSponsor(p);
             if (sponsor != null) {
                 return; // Sponsor was found
@@ -562,11 +888,18 @@ public final class Game {
 
         final int stageNum = questStages.size() + 1;
 
-        final int prevStageValue = questStages.isEmpty() ? 0 : cardSum(questStages.getLast());
+        final int prevStageValue =
+                questStages.isEmpty() ? 0 : CardCodec.cardSum(questStages.getLast());
 
-        output.println("\n[Stage " + stageNum + "]");
+        if (sponsor.getAgent() != null) {
+            buildAgentStage(stageNum, prevStageValue);
+            return;
+        }
+
+        io.println("\n[Stage " + stageNum + "]");
 
         List<Card> stageCards = new ArrayList<>();
+        CardMultiset stageWeapons = new CardMultiset();
 
         // Remove cards that were picked for previous stages (but not truly removed from the sponsor
         // hand until the
@@ -576,19 +909,21 @@ public final class Game {
         boolean foeAdded = false;
 
         while (true) {
-            output.flush();
+            io.flush();
 
-            output.print("Stage Cards: ");
-            if (stageCards.isEmpty()) {
-                output.println("(empty)");
-            } else {
-                output.println(Card.cardsToString(stageCards));
-            }
+            if (!io.isQuiet()) {
+                io.print("Stage Cards: ");
+                if (stageCards.isEmpty()) {
+                    io.println("(empty)");
+                } else {
+                    io.println(Card.cardsToString(stageCards));
+                }
 
-            output.println("Stage Value: " + cardSum(stageCards));
+                io.println("Stage Value: " + cardSum(stageCards));
+            }
 
             String userInput =
-                    cardSelection("Enter a card position to add it to the stage, or type 'quit':",
+                    io.cardSelection("Enter a card position to add it to the stage, or type 'quit':",
                             effectiveSponsorHand);
 
             boolean isInteger =
@@ -599,35 +934,38 @@ public final class Game {
                 int selectedIndex = Integer.parseInt(userInput) - 1;
 
                 if (selectedIndex < 0 || selectedIndex >= effectiveSponsorHand.size()) {
-                    output.println("Invalid index.");
-                    output.println();
+                    io.println("Invalid index.");
+                    io.println();
                 } else {
                     Card selectedCard = effectiveSponsorHand.get(selectedIndex);
                     Card.CardType selectedType = selectedCard.getCardType();
 
-                    output.println();
+                    io.println();
 
                     if (selectedType == Card.CardType.FOE) {
                         // If adding a Foe, save that a Foe was added; if there is already a Foe in
                         // the stage,
                         // indicate so
                         if (foeAdded) {
-                            output.println(
+                            io.println(
                                     "Invalid card: Cannot add more than one Foe card to a stage.");
-                            output.println();
+                            io.println();
                             continue;
                         } else {
                             foeAdded = true;
                         }
                     } else if (selectedType == Card.CardType.WEAPON
-                            && stageCards.contains(selectedCard)) {
+                            && stageWeapons.contains(selectedCard)) {
                         // If adding a weapon, indicate repeats
-                        output.println("Invalid: Cannot add a repeat Weapon card to a stage.");
-                        output.println();
+                        io.println("Invalid: Cannot add a repeat Weapon card to a stage.");
+                        io.println();
                         continue;
                     }
 
                     // No problems with card, add to stage
+                    if (selectedType == Card.CardType.WEAPON) {
+                        stageWeapons.add(selectedCard);
+                    }
                     stageCards.add(effectiveSponsorHand.remove(selectedIndex));
                     Collections.sort(stageCards);
                 }
@@ -638,46 +976,110 @@ public final class Game {
                      * non-repeat weapons.
                      */
                     if (stageCards.isEmpty()) {
-                        output.println("A stage cannot be empty\n");
+                        io.println("A stage cannot be empty\n");
                     } else if (!foeAdded) {
-                        output.println("A stage must have a Foe card\n");
+                        io.println("A stage must have a Foe card\n");
                     } else if (cardSum(stageCards) <= prevStageValue) {
-                        output.println(
+                        io.println(
                                 "Insufficient value for this stage, need strictly greater than "
                                         + prevStageValue + "\n");
                     } else {
                         // Stage is valid
-                        output.println("Stage Completed: " + Card.cardsToString(stageCards));
-                        output.flush();
-                        questStages.addLast(stageCards);
+                        addStage(stageCards);
                         break;
                     }
                 } else {
-                    output.println(
+                    io.println(
                             "Invalid input. Please type a valid card index or 'quit' (or 'q').");
-                    output.println();
+                    io.println();
                 }
             }
         }
     }
 
+    // Have the sponsor's agent build the next stage, checking it against the same rules as a stage
+    // built from text input.
+    private void buildAgentStage(final int stageNum, final int prevStageValue) {
+        List<Card> available = Collections.unmodifiableList(viewEffectiveSponsorHand());
+        List<Card> stageCards = new ArrayList<>(sponsor.getAgent().buildStage(
+                new PlayerAgent.StageRequest(this, sponsor, available, stageNum, questLength(),
+                        prevStageValue)));
+
+        String error = stageError(stageCards, available, prevStageValue);
+        if (error != null) {
+            throw new IllegalStateException(sponsor.getID() + "'s agent built an invalid stage "
+                    + stageNum + " '" + Card.cardsToString(stageCards) + "': " + error);
+        }
+
+        Collections.sort(stageCards);
+        addStage(stageCards);
+    }
+
+    // Return why the given cards cannot make the next stage, or null if they can.
+    static String stageError(final List<Card> stageCards, final List<Card> available,
+            final int prevStageValue) {
+        CardMultiset weapons = new CardMultiset();
+        int foes = 0;
+        for (final Card c : stageCards) {
+            if (!available.contains(c)) {
+                return "Card " + c.getCardID() + " is not available.";
+            } else if (c.getCardType() == Card.CardType.FOE) {
+                foes++;
+            } else if (c.getCardType() != Card.CardType.WEAPON) {
+                return "Only Foe and Weapon cards can be added to a stage.";
+            } else if (weapons.contains(c)) {
+                return "Cannot add a repeat Weapon card to a stage.";
+            } else {
+                weapons.add(c);
+            }
+        }
+
+        if (stageCards.isEmpty()) {
+            return "A stage cannot be empty";
+        } else if (foes == 0) {
+            return "A stage must have a Foe card";
+        } else if (foes > 1) {
+            return "Cannot add more than one Foe card to a stage.";
+        } else if (cardSum(stageCards) <= prevStageValue) {
+            return "Insufficient value for this stage, need strictly greater than "
+                    + prevStageValue;
+        }
+        return null;
+    }
+
+    // Return the value of the stage currently being played, or 0 if no stage is being played.
+    public int currentStageValue() {
+        if (stageNum < 1 || stageNum > questStages.size()) {
+            return 0;
+        }
+        return CardCodec.cardSum(questStages.get(stageNum - 1));
+    }
+
     public List<Card> buildAttack(final Player player) {
+        PlayerAgent agent = player.getAgent();
+        if (agent != null) {
+            return buildAgentAttack(player, agent);
+        }
+
         List<Card> attackCards = new ArrayList<>();
+        CardMultiset attackWeapons = new CardMultiset();
 
         while (true) {
-            output.flush();
+            io.flush();
 
-            output.print("Attack Cards: ");
-            if (attackCards.isEmpty()) {
-                output.println("(empty)");
-            } else {
-                output.println(Card.cardsToString(attackCards));
-            }
+            if (!io.isQuiet()) {
+                io.print("Attack Cards: ");
+                if (attackCards.isEmpty()) {
+                    io.println("(empty)");
+                } else {
+                    io.println(Card.cardsToString(attackCards));
+                }
 
-            output.println("Attack Value: " + cardSum(attackCards));
+                io.println("Attack Value: " + cardSum(attackCards));
+            }
 
             String userInput =
-                    cardSelection("Enter a card position to add it to the attack, or type 'quit':",
+                    io.cardSelection("Enter a card position to add it to the attack, or type 'quit':",
                             player.getHand());
 
             boolean isInteger =
@@ -690,20 +1092,21 @@ public final class Game {
                 int selectedIndex = Integer.parseInt(userInput) - 1;
 
                 if (selectedIndex < 0 || selectedIndex >= player.getHand().size()) {
-                    output.println("Invalid index.");
-                    output.println();
+                    io.println("Invalid index.");
+                    io.println();
                 } else {
                     Card selectedCard = player.getHand().get(selectedIndex);
                     Card.CardType selectedType = selectedCard.getCardType();
 
-                    output.println();
+                    io.println();
 
                     if (selectedType != Card.CardType.WEAPON) {
-                        output.println("Invalid: Attacks can only use Weapons.\n");
-                    } else if (attackCards.contains(selectedCard)) {
-                        output.println("Invalid: Cannot add a repeat Weapon card to an attack.\n");
+                        io.println("Invalid: Attacks can only use Weapons.\n");
+                    } else if (attackWeapons.contains(selectedCard)) {
+                        io.println("Invalid: Cannot add a repeat Weapon card to an attack.\n");
                     } else {
                         // No problems with card, remove from player hand and add to attack
+                        attackWeapons.add(selectedCard);
                         attackCards.add(player.getHand().remove(selectedIndex));
                         Collections.sort(attackCards);
                     }
@@ -711,46 +1114,98 @@ public final class Game {
             } else {
                 if (userInput.equalsIgnoreCase("quit") || userInput.equalsIgnoreCase("q")) {
                     /* 'quit' entered: finalise attack. */
-                    output.print("Attack Built (Value " + cardSum(attackCards) + "): ");
-                    output.println(Card.cardsToString(attackCards));
-                    output.flush();
+                    publishAttackBuilt(player, attackCards);
                     return attackCards;
                 } else {
-                    output.println(
+                    io.println(
                             "Invalid input. Please type a valid card index or 'quit' (or 'q').");
-                    output.println();
+                    io.println();
                 }
             }
         }
     }
 
+    // Have the player's agent build an attack, checking it against the same rules as an attack
+    // built from text input, and remove the cards used from their hand.
+    private List<Card> buildAgentAttack(final Player player, final PlayerAgent agent) {
+        final int questLength = currentEvent == null ? 0 : questLength();
+        List<Card> attackCards = new ArrayList<>(agent.buildAttack(new PlayerAgent.AttackRequest(
+                this, player, stageNum, questLength, currentStageValue())));
+
+        String error = attackError(attackCards, player.getHand());
+        if (error != null) {
+            throw new IllegalStateException(player.getID() + "'s agent built an invalid attack '"
+                    + Card.cardsToString(attackCards) + "': " + error);
+        }
+
+        for (final Card c : attackCards) {
+            player.getHand().remove(c);
+        }
+        Collections.sort(attackCards);
+        publishAttackBuilt(player, attackCards);
+        return attackCards;
+    }
+
+    private void publishAttackBuilt(final Player player, final List<Card> attackCards) {
+        if (listening()) {
+            publish(new GameEvent.AttackBuilt(player.getID(), List.copyOf(attackCards),
+                    cardSum(attackCards)));
+        }
+    }
+
+    // Return why the given cards cannot make an attack from the given hand, or null if they can.
+    static String attackError(final List<Card> attackCards, final List<Card> hand) {
+        CardMultiset weapons = new CardMultiset();
+        for (final Card c : attackCards) {
+            if (c.getCardType() != Card.CardType.WEAPON) {
+                return "Attacks can only use Weapons.";
+            } else if (weapons.contains(c)) {
+                return "Cannot add a repeat Weapon card to an attack.";
+            } else if (!hand.contains(c)) {
+                return "Card " + c.getCardID() + " is not in hand.";
+            }
+            weapons.add(c);
+        }
+        return null;
+    }
+
     public void doAttack(final Player p) {
-        final int stageValue = Game.cardSum(questStages.get(stageNum - 1));
+        final int stageValue = CardCodec.cardSum(questStages.get(stageNum - 1));
 
-        output.println(p.getID() + ": Build an attack for stage " + stageNum);
-        output.flush();
+        if (listening()) {
+            publish(new GameEvent.AttackStarted(p.getID(), stageNum));
+        }
 
         List<Card> attackCards = buildAttack(p);
+        if (journal != null) {
+            journal.attack(seatOf(p), attackCards);
+        }
 
         boolean wonRound = Game.cardSum(attackCards) >= stageValue;
 
         if (wonRound) {
             // Player wins, remain eligible.
-            output.println(p.getID() + ": You have won the stage.");
+            if (listening()) {
+                publish(new GameEvent.StageResolved(p.getID(), stageNum, true));
+            }
             if (stageNum == questLength()) {
                 // If last stage, get shield rewards as well
                 p.addShields(questLength());
-                output.println("You have won the quest! You also get " + questLength()
-                        + " shields. You now have " + p.getShields() + " shields.");
+                if (journal != null) {
+                    journal.shields(seatOf(p), questLength());
+                }
+                if (listening()) {
+                    publish(new GameEvent.QuestWon(p.getID(), questLength(), p.getShields()));
+                }
             }
         } else {
             // Player loses, cannot play anymore
             eligible.remove(p);
-            output.println(p.getID() + ": You have lost the stage.");
+            if (listening()) {
+                publish(new GameEvent.StageResolved(p.getID(), stageNum, false));
+            }
         }
 
-        output.flush();
-
         printTurnEndOf(p);
 
         // Cards used for the attack of the current stage are discarded by the game.
@@ -763,9 +1218,9 @@ public final class Game {
     public void startNewStage() {
         stageNum++; // Increment stage number at start of stage; it is initialised to 0 when a quest
                     // starts
-        output.println("[Stage " + stageNum + "]" + "\nEligible players: "
-                + Player.playersToString(eligible));
-        output.flush();
+        if (listening()) {
+            publish(new GameEvent.StageStarted(stageNum, Player.playersToIDs(eligible)));
+        }
     }
 
     public void runStage() {
@@ -775,9 +1230,15 @@ public final class Game {
         }
 
         startNewStage();
+        finishStageFrom(eligible.getFirst());
+    }
 
+    // Run the rest of the current stage, starting with asking the given eligible player whether to
+    // withdraw; players before them have already been asked.
+    void finishStageFrom(final Player first) {
         // Prompt each player for participation
-        for (final Player p : viewEligible()) {
+        List<Player> toPrompt = viewEligible();
+        for (final Player p : toPrompt.subList(toPrompt.indexOf(first), toPrompt.size())) {
             promptWithdraw(p);
         }
 
@@ -793,28 +1254,47 @@ public final class Game {
     // ends their turn to
     // flush screen) if they agree
     public void promptWithdraw(final Player p) {
+        PlayerAgent agent = p.getAgent();
+        if (agent != null) {
+            boolean withdrew = agent.withdraw(
+                    new PlayerAgent.WithdrawRequest(this, p, stageNum, questLength()));
+            recordWithdraw(p, withdrew);
+            if (withdrew) {
+                eligible.remove(p);
+            } else {
+                // Participating, draw 1 adventure card
+                Card drawn = drawAdventureCard();
+                if (listening()) {
+                    publish(new GameEvent.ParticipantDrew(p.getID(), drawn));
+                }
+                p.addToHand(drawn);
+            }
+            return;
+        }
+
         while (true) {
-            output.print(p.getID() + ": Would you like to withdraw from this quest? (y/n) > ");
-            output.flush();
+            io.print(p.getID() + ": Would you like to withdraw from this quest? (y/n) > ");
+            io.flush();
 
-            switch (getInputNextLine().toLowerCase()) {
+            switch (awaitAnswer(Advisor.Decision.WITHDRAW, p).toLowerCase()) {
                 case "y" -> {
                     // Player withdrawing
+                    recordWithdraw(p, true);
                     eligible.remove(p);
                     return;
                 }
                 case "n" -> {
                     // Player participating, draw 1 adventure card
+                    recordWithdraw(p, false);
                     Card drawn = drawAdventureCard();
-
-                    output.println("Drew 1 card: " + drawn.getCardID());
-                    output.flush();
-
+                    if (listening()) {
+                        publish(new GameEvent.ParticipantDrew(p.getID(), drawn));
+                    }
                     p.addToHand(drawn);
                     printTurnEndOf(p);
                     return;
                 }
-                default -> output.println("Invalid input. Please input only 'y' or 'n'.");
+                default -> io.println("Invalid input. Please input only 'y' or 'n'.");
             }
         }
     }
@@ -826,40 +1306,50 @@ public final class Game {
 
         // Iterate through each card used in the quest and discard it, incrementing the sponsor
         // reward per card
+        CardMultiset usedCards = new CardMultiset();
         for (final List<Card> stage : viewQuestStages()) {
             for (final Card c : stage) {
-                sponsor.getHand().remove(c);
+                usedCards.add(c);
                 discard(c);
                 sponsorReward++;
             }
         }
+        sponsor.removeFromHand(usedCards);
 
-        output.println("The quest is over. The sponsor will draw " + sponsorReward + " cards.");
-        output.flush();
+        if (listening()) {
+            publish(new GameEvent.QuestEnded(sponsor.getID(), sponsorReward));
+        }
         sponsor.addToHand(drawAdventureCards(sponsorReward));
     }
 
     public void runQuest() {
         promptPlayersToSponsor(); // Prompt each player, starting from current, to sponsor.
+        finishQuest();
+    }
 
+    // Run the rest of the current quest once the search for a sponsor is over: build the stages
+    // not built yet, run the stages left while anyone is eligible, and reward the sponsor.
+    void finishQuest() {
         if (sponsor == null) {
             // No sponsor found, no quest
-            output.println("No sponsor was found.");
-            output.flush();
+            if (listening()) {
+                publish(new GameEvent.NoSponsor());
+            }
+            endTurn();
             return;
         }
+        questsSponsored++;
 
         // Build a quest by prompting the sponsor for cards
-        for (int i = 0; i < questLength(); i++) {
-            buildAndAddStage();
+        if (questStages.size() < questLength()) {
+            while (questStages.size() < questLength()) {
+                buildAndAddStage();
+            }
+            printTurnEndOf(sponsor); // Sponsor's turn ends: others should not see built stages
         }
-        printTurnEndOf(sponsor); // Sponsor's turn ends: other players should not see built stages
 
-        // For each stage of the quest:
-        for (int i = 0; i < questLength(); i++) {
-            if (!eligibleRemaining()) {
-                break; // No players left, end quest here
-            }
+        // For each stage of the quest, while there are players left:
+        while (stageNum < questLength() && eligibleRemaining()) {
             runStage(); // Run the stage for participating players
         }
 
@@ -869,6 +1359,7 @@ public final class Game {
 
     // Run a turn for the current player, and hand off the turn to the next player.
     public void runTurn() {
+        turnCount++;
         printCurrentPlayerTurnStart(); // Indicate start of player turn
         setCurrentEvent(drawEventCard()); // Current player draws a new current event from the Event
                                           // deck
@@ -888,6 +1379,26 @@ public final class Game {
         setCurrentPlayer(getNextPlayer(getCurrentPlayer())); // Switch turn to next player
     }
 
+    // Headless mode: given an initialised game, have the agents (one per player, in turn order)
+    // make every decision and run turns until winners are found. No input is read; output still
+    // goes to the game's output, if it has one.
+    public void startGameLoop(final List<PlayerAgent> agents) {
+        setAgents(agents);
+        startGameLoop();
+    }
+
+    // Give each player (in turn order) the agent at the same position in the list.
+    public void setAgents(final List<PlayerAgent> agents) {
+        if (agents.size() != playerList.size()) {
+            throw new IllegalArgumentException("Expected " + playerList.size()
+                    + " agents, one per player, but got " + agents.size() + "!");
+        }
+
+        for (int i = 0; i < agents.size(); i++) {
+            playerList.get(i).setAgent(agents.get(i));
+        }
+    }
+
     // Given an initialised game, run turns until winners are found.
     public void startGameLoop() {
         do {
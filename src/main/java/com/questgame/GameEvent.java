@@ -0,0 +1,68 @@
+package com.questgame;
+
+import java.util.List;
+
+// Something that happened in a game, published to its listeners (see GameListener) as it happens.
+// Events hold only immutable values (player IDs rather than players, and copies of card lists),
+// so they can be kept, queued or sent elsewhere after the game has moved on.
+// Prompts for input and complaints about invalid input are not events; they are part of playing
+// from text input (see Game.promptToSponsor()).
+public sealed interface GameEvent {
+    // A player's turn started; hand is their hand at the start of it.
+    record TurnStarted(String player, List<Card> hand) implements GameEvent {
+    }
+
+    // The current player drew an Event or Quest card, which the turn is about.
+    record EventDrawn(Card event) implements GameEvent {
+    }
+
+    // The player lost shields to an event, leaving them with the given number.
+    record ShieldsLost(String player, int lost, int shields) implements GameEvent {
+    }
+
+    // The player drew cards because of an event.
+    record EventCardsDrawn(String player, List<Card> cards) implements GameEvent {
+    }
+
+    // The player's hand after drawing (and trimming, if they had too many cards).
+    record HandUpdated(String player, List<Card> hand) implements GameEvent {
+    }
+
+    // Nobody sponsored the current quest.
+    record NoSponsor() implements GameEvent {
+    }
+
+    // The sponsor finished building a stage of the quest.
+    record StageBuilt(int stageNum, List<Card> cards) implements GameEvent {
+    }
+
+    // A stage of the quest started, with the given players still eligible for it.
+    record StageStarted(int stageNum, List<String> eligible) implements GameEvent {
+    }
+
+    // The player stayed in the quest for the current stage, and drew a card for it.
+    record ParticipantDrew(String player, Card card) implements GameEvent {
+    }
+
+    // The player is to build an attack against the given stage.
+    record AttackStarted(String player, int stageNum) implements GameEvent {
+    }
+
+    record AttackBuilt(String player, List<Card> cards, int value) implements GameEvent {
+    }
+
+    // The player's attack beat the stage (won) or did not.
+    record StageResolved(String player, int stageNum, boolean won) implements GameEvent {
+    }
+
+    // The player won the last stage of the quest, and the given shields with it.
+    record QuestWon(String player, int shieldsWon, int shields) implements GameEvent {
+    }
+
+    // The quest is over; the sponsor draws the given number of cards.
+    record QuestEnded(String sponsor, int cardsDrawn) implements GameEvent {
+    }
+
+    record GameEnded(List<String> winners) implements GameEvent {
+    }
+}
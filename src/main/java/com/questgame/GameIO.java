@@ -0,0 +1,160 @@
+package com.questgame;
+
+import java.io.Writer;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+// The text input and output of one game, along with the display settings that go with it.
+// Each Game owns one, and hands it to its Players so that prompts (e.g. trimming a hand) reach the
+// right player; nothing here is shared between games, so many games can run in one process.
+public class GameIO {
+    // Told when the game starts and stops waiting on a line of input, e.g. so a server can tell
+    // when the game has done all it can with the input it was given (see GameSession).
+    public interface InputWatcher {
+        void awaitingInput();
+
+        void inputRead();
+    }
+
+    private Scanner input; // Null if there is none, as games made to be copied or stepped have
+    private final PrintWriter output;
+    private boolean echoInput; // Whether input read is also written to the output
+    private boolean selectionMenuRedirected; // Whether card selection menus are left out of output
+    private boolean quiet; // Whether all output is skipped (see Game.setQuiet())
+    // IDs of the cards in the selection menu currently waiting on input; empty if there is none
+    private volatile List<String> currCardSelectMenu;
+    private InputWatcher inputWatcher; // Told of waits for input, or null
+
+    // Create an I/O context that reads no input and discards all output.
+    public GameIO() {
+        this(null, null);
+    }
+
+    // Null arguments give no input and discarded output, respectively.
+    public GameIO(final Scanner input, final PrintWriter output) {
+        this.input = input; // A Scanner costs more to set up than the rest of a game
+        this.output = output != null ? output
+                : new PrintWriter(Writer.nullWriter());
+        this.echoInput = false;
+        this.selectionMenuRedirected = false;
+        this.quiet = false;
+        this.currCardSelectMenu = List.of();
+        this.inputWatcher = null;
+    }
+
+    public void print(final String s) {
+        if (!quiet) {
+            output.print(s);
+        }
+    }
+
+    public void println(final String s) {
+        if (!quiet) {
+            output.println(s);
+        }
+    }
+
+    public void println() {
+        if (!quiet) {
+            output.println();
+        }
+    }
+
+    public void flush() {
+        if (!quiet) {
+            output.flush();
+        }
+    }
+
+    public boolean isQuiet() {
+        return quiet;
+    }
+
+    public void setQuiet(final boolean quiet) {
+        this.quiet = quiet;
+    }
+
+    // Overwrites existing input with the given string.
+    public void setInput(final String string) {
+        input = new Scanner(string);
+    }
+
+    public void enableInputEcho() {
+        echoInput = true;
+    }
+
+    public void setSelectionMenuRedirected() {
+        selectionMenuRedirected = true;
+    }
+
+    public List<String> getCurrentCardsInSelectMenu() {
+        return currCardSelectMenu;
+    }
+
+    public void setInputWatcher(final InputWatcher inputWatcher) {
+        this.inputWatcher = inputWatcher;
+    }
+
+    // Read and return the next line of input, flushing any pending output first.
+    public String nextLine() {
+        flush(); // Everything asked so far is written before waiting on the answer
+        String nextLine;
+        if (inputWatcher == null) {
+            nextLine = readLine();
+        } else {
+            inputWatcher.awaitingInput();
+            try {
+                nextLine = readLine();
+            } finally {
+                inputWatcher.inputRead();
+            }
+        }
+        if (echoInput) {
+            if (nextLine.isEmpty()) {
+                println("(<return> key pressed)");
+            } else {
+                println(nextLine);
+            }
+            flush();
+        }
+        return nextLine;
+    }
+
+    private String readLine() {
+        if (input == null) {
+            throw new NoSuchElementException("No line found"); // As from a Scanner of no text
+        }
+        return input.nextLine();
+    }
+
+    // Displays a prompt to select cards from a 1-indexed list; returns the user input.
+    // Note: Must -1 from user index selection since the displayed is 1-index, not the card list's
+    // true 0-index
+    public String cardSelection(final String prompt, final List<Card> cards) {
+        println(prompt);
+
+        List<String> menu = new ArrayList<>(cards.size());
+        if (cards.isEmpty()) {
+            println("[-] (no cards)");
+        } else {
+            int i = 0;
+            for (final Card c : cards) {
+                menu.add(c.getCardID());
+                if (!selectionMenuRedirected && !quiet) {
+                    output.println((i + 1) + " - " + c.getCardID());
+                }
+                i++;
+            }
+        }
+        print("> ");
+        flush();
+
+        currCardSelectMenu = List.copyOf(menu);
+        String nextLine = nextLine();
+        currCardSelectMenu = List.of();
+        return nextLine;
+    }
+}
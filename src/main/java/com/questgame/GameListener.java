@@ -0,0 +1,8 @@
+package com.questgame;
+
+// Receives the events of a game (see Game.addListener()), on the thread running the game, in the
+// order they happen. Listeners should return quickly, as the game waits on them.
+@FunctionalInterface
+public interface GameListener {
+    void onEvent(GameEvent event);
+}
@@ -0,0 +1,391 @@
+package com.questgame;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+// One game hosted by the server (see Controller), with its own text input and output. The game
+// loop runs on an executor thread, reading text submitted through submit(); the thread only waits
+// on java.util.concurrent locks, never a monitor, so it can be a virtual thread that gives up its
+// carrier while the game waits on a player (see SessionRegistry). Its output and events are
+// buffered until the next state() call takes them. Buffers only hold what has not been sent yet,
+// and only the most recent of that (as SessionLog does), so a session's memory does not grow with
+// the length of its game, even if nobody ever calls state() (e.g. it is played over PlaySocket).
+// The game thread reports when it waits on input (see GameIO.InputWatcher), so awaitReady() can
+// tell when the game has done all it can with the input submitted: it has read every line and is
+// waiting on the next, or has ended. All output up to that point has been written by then, as the
+// game flushes its output before waiting.
+// Other threads only look at the game while the game thread waits on input: the game thread holds
+// the session's game lock at all other times, and everything that reads the game from elsewhere
+// (currentState(), withGame()) takes it.
+// Everything is also added to the session's log as it happens, for clients that stream it rather
+// than asking (see SessionLog): each chunk of output as the game flushes it, and the state each
+// time the game waits on input or ends.
+public class GameSession {
+    public static final int MAX_BUFFERED_OUTPUT = SessionLog.MAX_RETAINED_SIZE; // In chars
+    public static final int MAX_BUFFERED_EVENTS = 256;
+    // What the game's Scanner takes to end a line
+    private static final Pattern LINE_BREAK =
+            Pattern.compile("\\r\\n|[\\n\\r\\u2028\\u2029\\u0085]");
+
+    private final String id;
+    private final Game game;
+
+    private final SessionReader input; // Text submitted to the game
+    private final StringBuffer output; // Game text not yet sent
+    private final ArrayDeque<GameEvent> events; // Events not yet sent, in order; guarded by itself
+    private final SessionLog log;
+    private final ReentrantLock gameLock; // Held by the game thread unless it waits on input
+
+    // Progress through the input, guarded by this session's lock
+    private long linesSubmitted;
+    private long linesRead;
+    private boolean awaitingInput; // Whether the game thread is waiting on a line of input
+    private boolean finished; // Whether the game loop has ended, normally or not
+    private Future<?> loop; // The running game loop, once started
+
+    private volatile long lastActive; // System.nanoTime() of the last use by a client
+
+    public GameSession(final String id) throws IOException {
+        this.id = id;
+        this.input = new SessionReader();
+        this.output = new StringBuffer();
+        this.events = new ArrayDeque<>();
+        this.log = new SessionLog();
+        this.gameLock = new ReentrantLock();
+        this.linesSubmitted = 0;
+        this.linesRead = 0;
+        this.awaitingInput = false;
+        this.finished = false;
+        this.loop = null;
+        this.lastActive = System.nanoTime();
+
+        game = new Game(new Scanner(input), new PrintWriter(new SessionWriter()));
+        game.getIO().setInputWatcher(new Watcher());
+        game.addListener(this::bufferEvent);
+        game.initGame(); // Set up a new game with a standard deck and random hands per player.
+        game.enableInputEcho(); // Input to the game will be displayed in the output
+        game.setSelectionMenuRedirected(); // Hides card selection menu in the text console since
+                                           // webpage UI shows it
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public SessionLog getLog() {
+        return log;
+    }
+
+    // The session's game, e.g. for rigging a scenario before start(); it belongs to the game thread
+    // once started, so read it through withGame() from then on.
+    public Game getGame() {
+        return game;
+    }
+
+    // Return what the given function reads from the game, once the game thread is waiting on input
+    // (or has not started, or has ended). The game thread waits until the function returns, so it
+    // should be quick, e.g. take a copy of the game (see Advisor.positionOf()).
+    public <T> T withGame(final Function<Game, T> reader) {
+        gameLock.lock();
+        try {
+            return reader.apply(game);
+        } finally {
+            gameLock.unlock();
+        }
+    }
+
+    // Run the game loop on the given executor.
+    public void start(final ExecutorService executor) {
+        start(executor, () -> {
+        });
+    }
+
+    // Run the game loop on the given executor, then the given task on the same thread once the
+    // loop has ended, however it ended (before awaitEnd() returns).
+    public synchronized void start(final ExecutorService executor, final Runnable onEnd) {
+        loop = executor.submit(() -> {
+            gameLock.lock();
+            try {
+                game.startGameLoop();
+            } finally {
+                onEnd.run();
+                synchronized (this) {
+                    finished = true;
+                    notifyAll();
+                }
+                log.appendState(currentState());
+                log.close();
+                gameLock.unlock();
+            }
+        });
+    }
+
+    // End the game: it reads no more input, so the game loop ends at its next wait for input (at
+    // once if it is waiting now). A game not yet started ends as soon as it is.
+    public void cancel() {
+        input.close();
+        Future<?> running;
+        synchronized (this) {
+            running = loop;
+        }
+        if (running != null) {
+            running.cancel(true);
+        }
+    }
+
+    // Send a line of text to the game; text with line breaks in it is sent as several lines.
+    public void submit(final String text) throws IOException {
+        touch();
+        String[] lines = LINE_BREAK.split(text, -1);
+        synchronized (this) {
+            linesSubmitted += lines.length; // Counted before the game can read them
+        }
+        input.submit(String.join("\n", lines) + "\n");
+    }
+
+    // Note that a client is still using the session (see getIdleTime()).
+    public void touch() {
+        lastActive = System.nanoTime();
+    }
+
+    // How long it has been since a client submitted input or asked for the state.
+    public Duration getIdleTime() {
+        return Duration.ofNanos(System.nanoTime() - lastActive);
+    }
+
+    // Wait until the game has read every line submitted and is waiting on the next, or has ended,
+    // for at most the given time. Return whether it has.
+    public synchronized boolean awaitReady(final Duration timeout) throws InterruptedException {
+        return await(this::isReady, timeout);
+    }
+
+    // Wait until the game loop has ended, if it has been started, for at most the given time.
+    // Return whether it has.
+    public synchronized boolean awaitEnd(final Duration timeout) throws InterruptedException {
+        return await(() -> loop == null || finished, timeout);
+    }
+
+    private synchronized boolean await(final BooleanSupplier condition, final Duration timeout)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!condition.getAsBoolean()) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, left);
+        }
+        return true;
+    }
+
+    private synchronized boolean isReady() {
+        return finished || (awaitingInput && linesRead == linesSubmitted);
+    }
+
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+
+    // Return the game text and events since the last call, and the current state of the players.
+    public Map<String, Object> state() {
+        touch();
+        Map<String, Object> gameStateMap = new HashMap<>();
+        gameStateMap.put("gameId", id);
+
+        // Return the output buffer's content, then clear it
+        synchronized (output) {
+            gameStateMap.put("gameText", output.toString());
+            output.setLength(0);
+        }
+
+        // Return the events since the last state as well, for clients that do not read the text
+        List<Map<String, Object>> eventList = new ArrayList<>();
+        synchronized (events) {
+            for (final GameEvent e : events) {
+                eventList.add(Map.of("type", e.getClass().getSimpleName(), "event", e));
+            }
+            events.clear();
+        }
+        gameStateMap.put("events", eventList);
+
+        gameStateMap.put("gameStarted", true);
+        gameStateMap.putAll(currentState().toMap());
+        return gameStateMap;
+    }
+
+    // Return whether the game is waiting on input or has ended, its selection menu and the state
+    // of each player.
+    public State currentState() {
+        return withGame(g -> {
+            List<PlayerState> players = new ArrayList<>();
+            for (Player p : g.getPlayersStartingCurrent()) {
+                players.add(new PlayerState(p.getID(), g.seatOf(p), p.getShields(), p.viewHand()));
+            }
+            return new State(isReady() && !isFinished(), isFinished(),
+                    g.getCurrentCardsInSelectMenu(), players);
+        });
+    }
+
+    // A player as clients see them; seats are positions in turn order, from 0 for P1.
+    public record PlayerState(String id, int seat, int shields, List<Card> hand) {
+    }
+
+    // The state of a session at one moment, with the players from the current one on.
+    public record State(boolean awaitingInput, boolean gameOver, List<String> selectionMenu,
+            List<PlayerState> players) {
+        // The state as sent in JSON, with each player's hand as a string of card IDs.
+        public Map<String, Object> toMap() {
+            Map<String, Object> gameStateMap = new HashMap<>();
+            gameStateMap.put("awaitingInput", awaitingInput);
+            gameStateMap.put("gameOver", gameOver);
+            gameStateMap.put("currSelectionMenu", selectionMenu);
+
+            Map<String, Map<String, String>> playersMap = new HashMap<>();
+            for (PlayerState p : players) {
+                Map<String, String> playerInfoMap = new HashMap<>();
+                playerInfoMap.put("shields", String.valueOf(p.shields()));
+                playerInfoMap.put("hand", Card.cardsToString(p.hand()));
+                playerInfoMap.put("handSize", String.valueOf(p.hand().size()));
+                playersMap.put(p.id(), playerInfoMap);
+            }
+            gameStateMap.put("players", playersMap);
+
+            return gameStateMap;
+        }
+    }
+
+    // Holds the text submitted until the game thread reads it. Closing it ends the input; so does
+    // interrupting the game thread while it waits.
+    private static class SessionReader extends Reader {
+        private final ReentrantLock mutex = new ReentrantLock();
+        private final Condition submitted = mutex.newCondition();
+        private final StringBuilder pending = new StringBuilder(); // Submitted, not yet read
+        private boolean closed;
+
+        void submit(final String text) throws IOException {
+            mutex.lock();
+            try {
+                if (closed) {
+                    throw new IOException("The game has ended");
+                }
+                pending.append(text);
+                submitted.signal();
+            } finally {
+                mutex.unlock();
+            }
+        }
+
+        @Override
+        public int read(final char[] buf, final int off, final int len) throws IOException {
+            mutex.lock();
+            try {
+                while (pending.isEmpty()) {
+                    if (closed) {
+                        return -1;
+                    }
+                    submitted.await();
+                }
+                int n = Math.min(len, pending.length());
+                pending.getChars(0, n, buf, off);
+                pending.delete(0, n);
+                return n;
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("Game cancelled");
+            } finally {
+                mutex.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            mutex.lock();
+            try {
+                closed = true;
+                submitted.signalAll();
+            } finally {
+                mutex.unlock();
+            }
+        }
+    }
+
+    // Keep an event for state(), dropping the oldest kept once there are too many.
+    private void bufferEvent(final GameEvent event) {
+        synchronized (events) {
+            if (events.size() == MAX_BUFFERED_EVENTS) {
+                events.removeFirst();
+            }
+            events.addLast(event);
+        }
+    }
+
+    // Takes the game's output, keeping the most recent of it for state() and adding it to the log
+    // a chunk per flush. Only the game thread writes.
+    private class SessionWriter extends Writer {
+        private final StringBuilder chunk = new StringBuilder(); // Written since the last flush
+
+        @Override
+        public void write(final char[] buf, final int off, final int len) {
+            synchronized (output) {
+                output.append(buf, off, len);
+                if (output.length() > MAX_BUFFERED_OUTPUT) {
+                    output.delete(0, output.length() - MAX_BUFFERED_OUTPUT);
+                }
+            }
+            chunk.append(buf, off, len);
+        }
+
+        @Override
+        public void flush() {
+            if (!chunk.isEmpty()) {
+                log.appendOutput(chunk.toString());
+                chunk.setLength(0);
+            }
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+    }
+
+    // Keeps track of the game thread's waits for input, letting other threads at the game while it
+    // waits.
+    private class Watcher implements GameIO.InputWatcher {
+        @Override
+        public void awaitingInput() {
+            synchronized (GameSession.this) {
+                awaitingInput = true;
+                GameSession.this.notifyAll();
+            }
+            log.appendState(currentState());
+            gameLock.unlock();
+        }
+
+        @Override
+        public void inputRead() {
+            gameLock.lock();
+            synchronized (GameSession.this) {
+                awaitingInput = false;
+                linesRead++;
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.questgame;
+
+import java.util.*;
+
+// A player's hand of cards, always ordered by Card.compareTo().
+// Standard cards are kept as a count per CardCodec ordinal (which follows sorting order), so adding,
+// removing and finding them does not need any sorting or shifting. Non-standard cards (e.g. "F7",
+// used for testing) are rare and kept in a separate sorted list, merged in when iterating.
+public class Hand extends AbstractList<Card> {
+    private final int[] counts; // Number of each standard card held, by ordinal
+    private final List<Card> others; // Sorted non-standard cards
+    private int size;
+
+    public Hand() {
+        this.counts = new int[CardCodec.STANDARD_CARD_COUNT];
+        this.others = new ArrayList<>();
+        this.size = 0;
+    }
+
+    // Create a hand holding the given cards; copying another Hand needs no sorting.
+    public Hand(final Collection<Card> cards) {
+        if (cards instanceof Hand other) {
+            this.counts = other.counts.clone();
+            this.others = new ArrayList<>(other.others);
+            this.size = other.size;
+        } else {
+            this.counts = new int[CardCodec.STANDARD_CARD_COUNT];
+            this.others = new ArrayList<>();
+            this.size = 0;
+            addAll(cards);
+        }
+    }
+
+    // Return how many copies of the given card are in the hand.
+    public int count(final Card c) {
+        int ordinal = CardCodec.ordinal(c);
+        if (CardCodec.isStandard(ordinal)) {
+            return counts[ordinal];
+        }
+        int count = 0;
+        for (final Card other : others) {
+            if (other.equals(c)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return o instanceof Card c && count(c) > 0;
+    }
+
+    // Return the card at the given position of the sorted hand.
+    @Override
+    public Card get(int index) {
+        Objects.checkIndex(index, size);
+
+        int otherIndex = 0;
+        for (int ordinal = 0; ordinal < counts.length; ordinal++) {
+            if (!others.isEmpty()) {
+                // Non-standard cards sorting before this standard card come first
+                Card standard = CardCodec.decode(ordinal);
+                while (otherIndex < others.size()
+                        && others.get(otherIndex).compareTo(standard) < 0) {
+                    if (index == 0) {
+                        return others.get(otherIndex);
+                    }
+                    index--;
+                    otherIndex++;
+                }
+            }
+            if (index < counts[ordinal]) {
+                return CardCodec.decode(ordinal);
+            }
+            index -= counts[ordinal];
+        }
+        return others.get(otherIndex + index);
+    }
+
+    // Add a card in its sorted position; always succeeds.
+    @Override
+    public boolean add(final Card c) {
+        int ordinal = CardCodec.ordinal(c);
+        if (CardCodec.isStandard(ordinal)) {
+            counts[ordinal]++;
+        } else {
+            // Insert after any equal cards, keeping insertion order among ties
+            int i = others.size();
+            while (i > 0 && others.get(i - 1).compareTo(c) > 0) {
+                i--;
+            }
+            others.add(i, c);
+        }
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public Card remove(final int index) {
+        Card removed = get(index);
+        remove(removed);
+        return removed;
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        if (!(o instanceof Card c)) {
+            return false;
+        }
+        int ordinal = CardCodec.ordinal(c);
+        if (CardCodec.isStandard(ordinal)) {
+            if (counts[ordinal] == 0) {
+                return false;
+            }
+            counts[ordinal]--;
+        } else if (!others.remove(c)) {
+            return false;
+        }
+        size--;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(counts, 0);
+        others.clear();
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Iterator<Card> iterator() {
+        return new Iterator<>() {
+            private int ordinal = 0; // Current standard card
+            private int returned = 0; // Copies of the current standard card returned so far
+            private int otherIndex = 0; // Next non-standard card
+            private int lastOrdinal = -1; // Ordinal of the last card returned, -1 if non-standard
+            private boolean canRemove = false;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                skipExhausted();
+                return ordinal < counts.length || otherIndex < others.size();
+            }
+
+            @Override
+            public Card next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                Card standard = ordinal < counts.length ? CardCodec.decode(ordinal) : null;
+                canRemove = true;
+                if (otherIndex < others.size()
+                        && (standard == null || others.get(otherIndex).compareTo(standard) < 0)) {
+                    lastOrdinal = -1;
+                    return others.get(otherIndex++);
+                }
+                lastOrdinal = ordinal;
+                returned++;
+                return standard;
+            }
+
+            @Override
+            public void remove() {
+                if (!canRemove) {
+                    throw new IllegalStateException();
+                }
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (lastOrdinal < 0) {
+                    others.remove(--otherIndex);
+                } else {
+                    counts[lastOrdinal]--;
+                    if (lastOrdinal == ordinal) {
+                        returned--;
+                    }
+                }
+                size--;
+                expectedModCount = ++modCount;
+                canRemove = false;
+            }
+
+            private void skipExhausted() {
+                while (ordinal < counts.length && returned == counts[ordinal]) {
+                    ordinal++;
+                    returned = 0;
+                }
+            }
+        };
+    }
+}
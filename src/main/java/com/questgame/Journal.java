@@ -0,0 +1,256 @@
+package com.questgame;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+// An append-only record of everything that happens in a game: its seed, every card drawn, every
+// decision made by a player and every change in shields, in the order they happened (see
+// Game.setJournal()).
+// Events are written in a compact binary form through a buffer to a channel. The journal starts
+// with a format version byte; each event is then a varint header, holding the kind of event in its
+// low 4 bits and a small argument (a player's seat, with a yes/no decision in the lowest bit, or a
+// count of cards) above them, followed by the event's data. Cards are single CardCodec ordinals;
+// other numbers are varints, zigzag-encoded if they can be negative.
+public final class Journal implements Flushable, Closeable {
+    public static final int FORMAT_VERSION = 1;
+    private static final int BUFFER_SIZE = 8192;
+    private static final int KIND_BITS = 4;
+
+    public enum Kind {
+        SEED, ADVENTURE_DRAW, EVENT_DRAW, SPONSOR, STAGE, WITHDRAW, ATTACK, TRIM, SHIELDS
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+
+    // An event read back from a journal. Seats are positions in turn order, starting from 0 for P1.
+    public sealed interface Event {
+    }
+
+    public record Seed(long seed) implements Event {
+    }
+
+    public record AdventureDraw(List<Card> cards) implements Event {
+    }
+
+    public record EventDraw(Card card) implements Event {
+    }
+
+    public record Sponsor(int seat, boolean sponsored) implements Event {
+    }
+
+    public record Stage(List<Card> cards) implements Event {
+    }
+
+    public record Withdraw(int seat, boolean withdrew) implements Event {
+    }
+
+    public record Attack(int seat, List<Card> cards) implements Event {
+    }
+
+    public record Trim(int seat, Card card) implements Event {
+    }
+
+    public record ShieldChange(int seat, int change) implements Event {
+    }
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    public Journal(final WritableByteChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        buffer.put((byte) FORMAT_VERSION);
+    }
+
+    public void seed(final long seed) {
+        header(Kind.SEED, 0);
+        putVarLong(zigzag(seed));
+    }
+
+    public void adventureDraw(final Card card) {
+        header(Kind.ADVENTURE_DRAW, 1);
+        putCard(card);
+    }
+
+    // Record several cards drawn at once, in draw order.
+    public void adventureDraw(final List<Card> cards) {
+        header(Kind.ADVENTURE_DRAW, cards.size());
+        for (final Card c : cards) {
+            putCard(c);
+        }
+    }
+
+    public void eventDraw(final Card card) {
+        header(Kind.EVENT_DRAW, 0);
+        putCard(card);
+    }
+
+    public void sponsor(final int seat, final boolean sponsored) {
+        header(Kind.SPONSOR, seat << 1 | (sponsored ? 1 : 0));
+    }
+
+    // Record a stage built by the sponsor, as CardCodec ordinals.
+    public void stage(final byte[] cards) {
+        header(Kind.STAGE, cards.length);
+        ensureRoom(cards.length);
+        buffer.put(cards);
+    }
+
+    public void withdraw(final int seat, final boolean withdrew) {
+        header(Kind.WITHDRAW, seat << 1 | (withdrew ? 1 : 0));
+    }
+
+    public void attack(final int seat, final List<Card> cards) {
+        header(Kind.ATTACK, seat);
+        putVarLong(cards.size());
+        for (final Card c : cards) {
+            putCard(c);
+        }
+    }
+
+    public void trim(final int seat, final Card card) {
+        header(Kind.TRIM, seat);
+        putCard(card);
+    }
+
+    public void shields(final int seat, final int change) {
+        header(Kind.SHIELDS, seat);
+        putVarLong(zigzag(change));
+    }
+
+    // Write out everything recorded so far.
+    @Override
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    private void header(final Kind kind, final int argument) {
+        putVarLong((long) argument << KIND_BITS | kind.ordinal());
+    }
+
+    private void putCard(final Card card) {
+        ensureRoom(1);
+        buffer.put(CardCodec.encode(card));
+    }
+
+    private void putVarLong(long value) {
+        ensureRoom(10); // Longest varint of a long
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    // Make room in the buffer for the given number of bytes, writing it out if needed.
+    private void ensureRoom(final int bytes) {
+        if (buffer.remaining() < bytes) {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static long zigzag(final long value) {
+        return value << 1 ^ value >> 63;
+    }
+
+    private static long unzigzag(final long value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    // Read every event from a journal, until the end of the channel.
+    public static List<Event> read(final ReadableByteChannel channel) throws IOException {
+        ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+        while (channel.read(in) >= 0) {
+            if (!in.hasRemaining()) {
+                in = ByteBuffer.allocate(in.capacity() * 2).put(in.flip());
+            }
+        }
+        return read(in.flip());
+    }
+
+    // Read every event from the remaining bytes of a journal.
+    public static List<Event> read(final ByteBuffer in) throws IOException {
+        List<Event> events = new ArrayList<>();
+        try {
+            int version = in.get();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported journal format version " + version + "!");
+            }
+
+            while (in.hasRemaining()) {
+                long header = getVarLong(in);
+                int kind = (int) (header & ((1 << KIND_BITS) - 1));
+                int argument = (int) (header >>> KIND_BITS);
+                if (kind >= KINDS.length) {
+                    throw new IOException("Unknown journal event kind " + kind + "!");
+                }
+
+                events.add(switch (KINDS[kind]) {
+                    case SEED -> new Seed(unzigzag(getVarLong(in)));
+                    case ADVENTURE_DRAW -> new AdventureDraw(getCards(in, argument));
+                    case EVENT_DRAW -> new EventDraw(getCard(in));
+                    case SPONSOR -> new Sponsor(argument >> 1, (argument & 1) != 0);
+                    case STAGE -> new Stage(getCards(in, argument));
+                    case WITHDRAW -> new Withdraw(argument >> 1, (argument & 1) != 0);
+                    case ATTACK -> new Attack(argument, getCards(in, (int) getVarLong(in)));
+                    case TRIM -> new Trim(argument, getCard(in));
+                    case SHIELDS -> new ShieldChange(argument, (int) unzigzag(getVarLong(in)));
+                });
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Journal ends in the middle of an event!", e);
+        }
+        return events;
+    }
+
+    private static Card getCard(final ByteBuffer in) throws IOException {
+        int ordinal = in.get() & 0xFF;
+        if (ordinal >= CardCodec.ordinalCount()) {
+            throw new IOException("Unknown card " + ordinal + " in journal!");
+        }
+        return CardCodec.decode(ordinal);
+    }
+
+    private static List<Card> getCards(final ByteBuffer in, final int count)
+            throws IOException {
+        List<Card> cards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            cards.add(getCard(in));
+        }
+        return List.copyOf(cards);
+    }
+
+    private static long getVarLong(final ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in journal!");
+    }
+}
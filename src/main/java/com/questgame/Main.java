@@ -1,11 +1,22 @@
 package com.questgame;
 
 import java.io.PrintWriter;
+import java.util.Arrays;
 import java.util.Scanner;
 
 public class Main {
+    // Optionally takes a seed as the first argument, to replay the same shuffles as a previous game.
+    // "--batch <games> [seed]" instead plays a batch of headless games; see BatchRunner.
     public static void main(String[] args) {
-        Game game = new Game(new Scanner(System.in), new PrintWriter(System.out));
+        if (args.length > 0 && args[0].equals("--batch")) {
+            BatchRunner.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
+        Scanner input = new Scanner(System.in);
+        PrintWriter output = new PrintWriter(System.out);
+        Game game = args.length > 0 ? new Game(input, output, Long.parseLong(args[0]))
+                : new Game(input, output);
         game.initGame(); // Initialises decks and players, sets up player hands
         game.startGameLoop(); // Do game loop until winners found
     }
@@ -0,0 +1,159 @@
+package com.questgame;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// The binary protocol of PlaySocket. Each WebSocket binary message is one frame: an opcode byte,
+// then its payload. Cards are single CardCodec ordinals (standard cards have the same ordinal
+// everywhere) and counts are single unsigned bytes.
+// From the client:
+//   START  scenario                  Start a new game (see Controller.rigScenario()); the server
+//                                    answers with GAME
+//   JOIN   game ID                   Play an existing game, e.g. one started with /start
+//   TEXT   UTF-8 line                Submit a line of input, as /submit does
+//   SELECT card...                   Pick each card from the selection menu in turn, then quit;
+//                                    a whole stage or attack in one message
+// From the server:
+//   GAME   game ID                   The game the connection plays; IDs are 16-byte UUIDs
+//   OUTPUT UTF-8 text                A chunk of game text
+//   STATE  flags, count, menu card..., then per player: seat, shields, count, hand card...
+//                                    The state each time the game waits on input or ends, with
+//                                    only the players changed since the last STATE (all of them
+//                                    if flags has FULL)
+//   ERROR  UTF-8 message             A frame the server could not act on
+public final class PlayProtocol {
+    public static final byte START = 0x01;
+    public static final byte JOIN = 0x02;
+    public static final byte TEXT = 0x03;
+    public static final byte SELECT = 0x04;
+
+    public static final byte GAME = (byte) 0x81;
+    public static final byte OUTPUT = (byte) 0x82;
+    public static final byte STATE = (byte) 0x83;
+    public static final byte ERROR = (byte) 0x84;
+
+    // STATE flags
+    public static final int AWAITING_INPUT = 1;
+    public static final int GAME_OVER = 2;
+    public static final int FULL = 4; // Every player is included
+
+    private static final int GAME_ID_SIZE = 16;
+
+    private PlayProtocol() {
+    }
+
+    public static ByteBuffer start(final int scenario) {
+        return ByteBuffer.allocate(2).put(START).put((byte) scenario).flip();
+    }
+
+    // A JOIN or GAME frame.
+    public static ByteBuffer gameId(final byte opcode, final String id) {
+        UUID uuid = UUID.fromString(id);
+        return ByteBuffer.allocate(1 + GAME_ID_SIZE).put(opcode)
+                .putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits())
+                .flip();
+    }
+
+    // A TEXT, OUTPUT or ERROR frame.
+    public static ByteBuffer text(final byte opcode, final String text) {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(1 + utf8.length).put(opcode).put(utf8).flip();
+    }
+
+    public static ByteBuffer select(final List<Card> cards) {
+        return ByteBuffer.allocate(1 + cards.size()).put(SELECT).put(CardCodec.encode(cards))
+                .flip();
+    }
+
+    // Read the game ID from the rest of a JOIN or GAME frame.
+    public static String readGameId(final ByteBuffer frame) {
+        return new UUID(frame.getLong(), frame.getLong()).toString();
+    }
+
+    // Read the rest of a TEXT, OUTPUT or ERROR frame.
+    public static String readText(final ByteBuffer frame) {
+        return StandardCharsets.UTF_8.decode(frame).toString();
+    }
+
+    // Read the cards of the rest of a SELECT frame.
+    public static List<Card> readCards(final ByteBuffer frame) {
+        List<Card> cards = new ArrayList<>(frame.remaining());
+        while (frame.hasRemaining()) {
+            cards.add(CardCodec.decode(frame.get()));
+        }
+        return cards;
+    }
+
+    public record PlayerFrame(int seat, int shields, List<Card> hand) {
+    }
+
+    public record StateFrame(int flags, List<Card> menu, Map<Integer, PlayerFrame> players) {
+        public boolean has(final int flag) {
+            return (flags & flag) != 0;
+        }
+    }
+
+    // Read the rest of a STATE frame.
+    public static StateFrame readState(final ByteBuffer frame) {
+        int flags = frame.get();
+        List<Card> menu = readCards(frame, frame.get() & 0xFF);
+        Map<Integer, PlayerFrame> players = new HashMap<>();
+        while (frame.hasRemaining()) {
+            int seat = frame.get();
+            int shields = frame.get();
+            players.put(seat, new PlayerFrame(seat, shields, readCards(frame, frame.get() & 0xFF)));
+        }
+        return new StateFrame(flags, menu, players);
+    }
+
+    private static List<Card> readCards(final ByteBuffer frame, final int count) {
+        List<Card> cards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            cards.add(CardCodec.decode(frame.get()));
+        }
+        return cards;
+    }
+
+    // Writes STATE frames for one connection, remembering what it has sent so that each frame
+    // only holds the players that changed.
+    public static class StateEncoder {
+        private final Map<Integer, PlayerFrame> sent = new HashMap<>();
+
+        // Write a frame for the given state; full to include every player.
+        public ByteBuffer encode(final GameSession.State state, final boolean full) {
+            List<PlayerFrame> changed = new ArrayList<>();
+            for (final GameSession.PlayerState p : state.players()) {
+                PlayerFrame frame = new PlayerFrame(p.seat(), p.shields(), p.hand());
+                if (full || !frame.equals(sent.get(p.seat()))) {
+                    changed.add(frame);
+                    sent.put(p.seat(), frame);
+                }
+            }
+
+            int size = 3 + state.selectionMenu().size();
+            for (final PlayerFrame p : changed) {
+                size += 3 + p.hand().size();
+            }
+            ByteBuffer out = ByteBuffer.allocate(size);
+            out.put(STATE);
+            out.put((byte) ((state.awaitingInput() ? AWAITING_INPUT : 0)
+                    | (state.gameOver() ? GAME_OVER : 0) | (full ? FULL : 0)));
+            out.put((byte) state.selectionMenu().size());
+            for (final String id : state.selectionMenu()) {
+                out.put(CardCodec.encode(Card.of(id)));
+            }
+            for (final PlayerFrame p : changed) {
+                out.put((byte) p.seat());
+                out.put((byte) p.shields());
+                out.put((byte) p.hand().size());
+                out.put(CardCodec.encode(p.hand()));
+            }
+            return out.flip();
+        }
+    }
+}
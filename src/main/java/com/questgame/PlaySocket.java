@@ -0,0 +1,185 @@
+package com.questgame;
+
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Endpoint;
+import jakarta.websocket.EndpointConfig;
+import jakarta.websocket.MessageHandler;
+import jakarta.websocket.Session;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+
+// A WebSocket connection playing one game in the binary protocol of PlayProtocol, for clients that
+// would rather not poll or parse JSON. Games are the same sessions the REST endpoints host (see
+// SessionRegistry), so a game can be started with one and played with the other.
+// Frames from the client are handled as they arrive; what the game produces is sent by a task of
+// its own, reading the session's log (see SessionLog) as Controller.stream() does. A game started
+// here ends when the connection closes; one joined is left to its other clients.
+public class PlaySocket extends Endpoint {
+    private static final Duration READY_TIMEOUT = Duration.ofSeconds(5); // Per card of a SELECT
+    private static final Duration LOG_WAIT = Duration.ofSeconds(15);
+
+    private final SessionRegistry sessions;
+    private final ExecutorService executor; // Runs the sending task
+    private final PlayProtocol.StateEncoder stateEncoder;
+    private final ReentrantLock sendLock; // Not a monitor, as the sending task is a virtual thread
+
+    private Session socket;
+    private GameSession session; // The game played, once started or joined
+    private boolean started; // Whether this connection started the game it plays
+    private volatile Future<?> sender; // Cancelled from the closing thread
+
+    public PlaySocket(final SessionRegistry sessions, final ExecutorService executor) {
+        this.sessions = sessions;
+        this.executor = executor;
+        this.stateEncoder = new PlayProtocol.StateEncoder();
+        this.sendLock = new ReentrantLock();
+    }
+
+    @Override
+    public void onOpen(final Session socket, final EndpointConfig config) {
+        this.socket = socket;
+        socket.addMessageHandler(ByteBuffer.class,
+                (MessageHandler.Whole<ByteBuffer>) this::receive);
+    }
+
+    @Override
+    public void onClose(final Session socket, final CloseReason reason) {
+        if (sender != null) {
+            sender.cancel(true);
+        }
+        try {
+            if (started) {
+                sessions.cancel(session.getId());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Frames from one connection arrive one at a time.
+    private void receive(final ByteBuffer frame) {
+        try {
+            if (!frame.hasRemaining()) {
+                throw new IllegalArgumentException("Empty frame");
+            }
+            byte opcode = frame.get();
+            switch (opcode) {
+                case PlayProtocol.START -> {
+                    notPlaying();
+                    GameSession created = sessions.create();
+                    int scenario = frame.hasRemaining() ? frame.get() & 0xFF : 0;
+                    Controller.rigScenario(created.getGame(), scenario);
+                    started = true;
+                    play(created);
+                    sessions.start(created);
+                }
+                case PlayProtocol.JOIN -> {
+                    notPlaying();
+                    GameSession joined = sessions.get(PlayProtocol.readGameId(frame));
+                    if (joined == null) {
+                        throw new IllegalArgumentException("Unknown game");
+                    }
+                    play(joined);
+                }
+                case PlayProtocol.TEXT -> playing().submit(PlayProtocol.readText(frame));
+                case PlayProtocol.SELECT -> select(playing(), PlayProtocol.readCards(frame));
+                default -> throw new IllegalArgumentException("Unknown opcode " + opcode);
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            send(PlayProtocol.text(PlayProtocol.ERROR, e.getMessage()));
+        } catch (IOException e) {
+            send(PlayProtocol.text(PlayProtocol.ERROR, "Game unavailable"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void notPlaying() {
+        if (session != null) {
+            throw new IllegalStateException("Already playing " + session.getId());
+        }
+    }
+
+    private void play(final GameSession chosen) {
+        session = chosen;
+        send(PlayProtocol.gameId(PlayProtocol.GAME, chosen.getId()));
+        sender = executor.submit(this::sendLog);
+    }
+
+    private GameSession playing() {
+        if (session == null) {
+            throw new IllegalStateException("No game; send START or JOIN first");
+        }
+        return session;
+    }
+
+    // Pick each card from the selection menu by its position there, once the game is waiting on
+    // it, then end the selection.
+    private void select(final GameSession game, final List<Card> cards)
+            throws IOException, InterruptedException {
+        for (final Card c : cards) {
+            game.awaitReady(READY_TIMEOUT);
+            int position = game.getGame().getCurrentCardsInSelectMenu().indexOf(c.getCardID());
+            if (position < 0) {
+                throw new IllegalArgumentException(c.getCardID() + " is not in the menu");
+            }
+            game.submit(String.valueOf(position + 1));
+        }
+        game.awaitReady(READY_TIMEOUT);
+        game.submit("quit");
+    }
+
+    // Send what the game produces until it ends or the connection closes; the first state sent is
+    // a full one, so that every later one can hold only what changed.
+    private void sendLog() {
+        SessionLog log = session.getLog();
+        long sent = log.getLastId();
+        send(stateEncoder.encode(session.currentState(), true));
+        try {
+            while (socket.isOpen()) {
+                List<SessionLog.Entry> entries = log.after(sent, LOG_WAIT);
+                if (entries == null) {
+                    sent = log.getLastId();
+                    send(stateEncoder.encode(session.currentState(), true));
+                } else {
+                    for (final SessionLog.Entry e : entries) {
+                        if (e.data() instanceof GameSession.State state) {
+                            send(stateEncoder.encode(state, false));
+                        } else {
+                            send(PlayProtocol.text(PlayProtocol.OUTPUT,
+                                    (String) ((Map<?, ?>) e.data()).get("text")));
+                        }
+                        sent = e.id();
+                    }
+                }
+
+                if (log.isClosed() && sent == log.getLastId()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Connection closed
+        }
+    }
+
+    // Frames are sent from both the connection's thread and the sending task, one at a time.
+    private void send(final ByteBuffer frame) {
+        sendLock.lock();
+        try {
+            if (socket.isOpen()) {
+                socket.getBasicRemote().sendBinary(frame);
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client gone; onClose() will follow
+        } finally {
+            sendLock.unlock();
+        }
+    }
+}
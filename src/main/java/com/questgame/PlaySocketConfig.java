@@ -0,0 +1,50 @@
+package com.questgame;
+
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.websocket.DeploymentException;
+import jakarta.websocket.Endpoint;
+import jakarta.websocket.server.ServerContainer;
+import jakarta.websocket.server.ServerEndpointConfig;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Serves PlaySocket at /play, on the server's own WebSocket container. Registered once the servlet
+// context is up, as the container is only there by then.
+@Component
+public class PlaySocketConfig implements ServletContextListener {
+    public static final String PATH = "/play";
+
+    private final SessionRegistry sessions;
+    private final ExecutorService executor; // Sends to the sockets, one virtual thread per socket
+
+    public PlaySocketConfig(final SessionRegistry sessions) {
+        this.sessions = sessions;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @Override
+    public void contextInitialized(final ServletContextEvent event) {
+        ServerContainer container = (ServerContainer) event.getServletContext()
+                .getAttribute(ServerContainer.class.getName());
+        try {
+            container.addEndpoint(ServerEndpointConfig.Builder.create(PlaySocket.class, PATH)
+                    .configurator(new ServerEndpointConfig.Configurator() {
+                        @Override
+                        public <T> T getEndpointInstance(final Class<T> endpointClass) {
+                            Endpoint socket = new PlaySocket(sessions, executor);
+                            return endpointClass.cast(socket);
+                        }
+                    }).build());
+        } catch (DeploymentException e) {
+            throw new IllegalStateException("Cannot serve " + PATH, e);
+        }
+    }
+
+    @Override
+    public void contextDestroyed(final ServletContextEvent event) {
+        executor.shutdownNow();
+    }
+}
@@ -4,13 +4,33 @@ import java.util.*;
 
 public class Player {
     private final int number; // Identifying player number
-    private final List<Card> hand; // Sorted list of cards in hand
+    private final Hand hand; // Sorted cards in hand
+    private final GameIO io; // I/O of the game this player is in, for prompts
+    private final Deck discardPile; // Deck that trimmed cards are discarded to; null drops them
+    private PlayerAgent agent; // Makes this player's decisions, or null to prompt for input
+    private Journal journal; // Journal of the game this player is in, for trims, or null
+    private int seat; // This player's seat in the game, as the journal records it
 
     private int shields;
 
     public Player(final int num) {
+        this(num, new GameIO(), null);
+    }
+
+    public Player(final int num, final GameIO io, final Deck discardPile) {
         this.number = num;
-        this.hand = new ArrayList<>();
+        this.hand = new Hand();
+        this.io = io;
+        this.discardPile = discardPile;
+    }
+
+    // Create a copy of the given player (hand and shields, but not agent) for another game.
+    public Player(final Player source, final GameIO io, final Deck discardPile) {
+        this.number = source.number;
+        this.hand = new Hand(source.hand);
+        this.io = io;
+        this.discardPile = discardPile;
+        this.shields = source.shields;
     }
 
     // From the given list of players, return a comma-separated list of their IDs as a string.
@@ -22,10 +42,28 @@ public class Player {
         return sj.toString();
     }
 
+    int getNumber() {
+        return number;
+    }
+
+    // Return the IDs of the given players, in order.
+    public static List<String> playersToIDs(final List<Player> players) {
+        List<String> ids = new ArrayList<>(players.size());
+        for (final Player p : players) {
+            ids.add(p.getID());
+        }
+        return ids;
+    }
+
     public String getID() {
         return "P" + number;
     }
 
+    // Return how many copies of the given card are in the player's hand.
+    public int countInHand(final Card c) {
+        return hand.count(c);
+    }
+
     public int getHandSize() {
         return hand.size();
     }
@@ -41,16 +79,25 @@ public class Player {
 
     public void addToHand(final Collection<Card> cards) {
         hand.addAll(cards);
-        Collections.sort(hand);
         trim();
     }
 
     public void addToHand(final Card card) {
         hand.add(card);
-        Collections.sort(hand);
         trim();
     }
 
+    // Remove one copy from the hand of each card in the given multiset, skipping cards not held.
+    // Cards removed from the hand are also taken out of the multiset.
+    public void removeFromHand(final CardMultiset cards) {
+        Iterator<Card> iter = hand.iterator();
+        while (iter.hasNext() && !cards.isEmpty()) {
+            if (cards.remove(iter.next())) {
+                iter.remove();
+            }
+        }
+    }
+
     // Overwrite the player's hand with the cards in the collection given.
     // Existing cards will be wiped. If the new hand has too many cards, a trim dialogue will be
     // triggered afterwards.
@@ -70,6 +117,22 @@ public class Player {
         return sj.toString();
     }
 
+    public PlayerAgent getAgent() {
+        return agent;
+    }
+
+    // Have the given agent make this player's decisions; null to prompt for text input instead.
+    public void setAgent(final PlayerAgent agent) {
+        this.agent = agent;
+    }
+
+    // Record cards trimmed from this player's hand in the given journal, as trimmed by the player
+    // in the given seat (see Game.seatOf()), or stop if null.
+    void setJournal(final Journal journal, final int seat) {
+        this.journal = journal;
+        this.seat = seat;
+    }
+
     public int getShields() {
         return shields;
     }
@@ -86,22 +149,41 @@ public class Player {
 
     private void trim() {
         while (getHandSize() > 12) {
+            if (agent != null) {
+                Card discarded = agent.trim(new PlayerAgent.TrimRequest(this));
+                if (!hand.remove(discarded)) {
+                    throw new IllegalStateException(getID() + "'s agent tried to discard '"
+                            + discarded + "', which is not in their hand!");
+                }
+                discardTrimmed(discarded);
+                continue;
+            }
+
             String prompt = "You have too many cards in your hand. (" + getHandSize() + "/12)"
                     + "\nPlease enter a card position and hit enter to discard it:";
 
-            String userInput = Game.cardSelection(prompt, hand);
+            String userInput = io.cardSelection(prompt, hand);
 
             boolean isInteger =
                     !userInput.isBlank() && userInput.chars().allMatch(Character::isDigit);
             if (isInteger) {
                 int selected = Integer.parseInt(userInput) - 1; // Adjust for 0-index
                 if (selected >= 0 && selected < getHandSize()) {
-                    hand.remove(selected);
+                    discardTrimmed(hand.remove(selected));
                 }
             }
         }
     }
 
+    private void discardTrimmed(final Card c) {
+        if (journal != null) {
+            journal.trim(seat, c);
+        }
+        if (discardPile != null) {
+            discardPile.addToDiscardPile(c);
+        }
+    }
+
     @Override
     public String toString() {
         return getID(); // Print ID; e.g. "P2", "P30"
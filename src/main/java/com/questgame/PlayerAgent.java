@@ -0,0 +1,45 @@
+package com.questgame;
+
+import java.util.List;
+
+// Makes a player's decisions directly, instead of the game prompting for and parsing text input.
+// Each decision gets a typed request and returns a typed choice, which the game checks against
+// the same rules as text input; a choice that breaks them throws an IllegalStateException.
+// A player with an agent is never asked to press <return> at the end of a turn.
+public interface PlayerAgent {
+    // Whether to sponsor the current quest.
+    boolean sponsor(SponsorRequest request);
+
+    // The cards for the next stage of a sponsored quest: exactly one Foe and any non-repeated
+    // Weapons, taken from the available cards, worth strictly more than the previous stage.
+    List<Card> buildStage(StageRequest request);
+
+    // Whether to withdraw from the quest; staying in draws a card.
+    boolean withdraw(WithdrawRequest request);
+
+    // The cards to attack the current stage with: any non-repeated Weapons from the player's hand.
+    List<Card> buildAttack(AttackRequest request);
+
+    // A card to discard from a hand with more than 12 cards; asked once per excess card.
+    Card trim(TrimRequest request);
+
+    record SponsorRequest(Game game, Player player, int questLength) {
+    }
+
+    // availableCards is the sponsor's hand without the cards used in earlier stages.
+    record StageRequest(Game game, Player sponsor, List<Card> availableCards, int stageNum,
+            int questLength, int previousStageValue) {
+    }
+
+    record WithdrawRequest(Game game, Player player, int stageNum, int questLength) {
+    }
+
+    // stageValue is the value of the stage being attacked, which human players cannot see; agents
+    // that should play fair can ignore it.
+    record AttackRequest(Game game, Player player, int stageNum, int questLength,
+            int stageValue) {
+    }
+
+    record TrimRequest(Player player) {
+    }
+}
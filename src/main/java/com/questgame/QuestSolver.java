@@ -0,0 +1,248 @@
+package com.questgame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Finds the ways a sponsor can build a quest from their hand, following the rules of
+// Game.buildAndAddStage(): each stage has exactly one Foe and any non-repeated Weapons, is worth
+// strictly more than the stage before it, and no card is used twice.
+// Only standard Foe and Weapon cards are considered. A hand is reduced to a count per card kind,
+// capped at the number of stages left (no stage can use two cards of the same kind), and packed
+// 3 bits per kind into a long; solved positions are remembered by that key across calls and games,
+// in a fixed-size table per thread that simply overwrites old positions when two collide.
+public final class QuestSolver {
+    public static final int MAX_QUEST_LENGTH = 5;
+
+    // What a build should make the most of. A stage is worth the value of its cards, so both are
+    // about the total value of the cards used.
+    public enum Goal {
+        CHEAPEST, // Least total value, keeping the most in hand
+        STRONGEST // Most total value, making stages hardest to beat
+    }
+
+    private static final List<Card> FOES = Card.standardCards().stream()
+            .filter(c -> c.getCardType() == Card.CardType.FOE).toList();
+    private static final int WEAPON_KINDS = AttackSolver.WEAPONS.size();
+    private static final int KINDS = FOES.size() + WEAPON_KINDS; // Foes, then Weapons
+    private static final int MAX_STAGE_VALUE = // The strongest Foe with every Weapon
+            FOES.getLast().getValue() + AttackSolver.value((1 << WEAPON_KINDS) - 1);
+    private static final int[] KIND_BY_ORDINAL = new int[CardCodec.STANDARD_CARD_COUNT];
+
+    private static final int BITS_PER_KIND = 3; // Enough for counts up to MAX_QUEST_LENGTH
+    private static final int MAX_KEY_VALUE = (1 << 8) - 1; // Largest prevValue a key can hold
+    private static final int NONE = -1;
+    private static final int MEMO_SIZE = 1 << 15; // Positions remembered per thread
+    private static final ThreadLocal<Memo> memo = ThreadLocal.withInitial(Memo::new);
+
+    static {
+        Arrays.fill(KIND_BY_ORDINAL, NONE);
+        for (int kind = 0; kind < KINDS; kind++) {
+            KIND_BY_ORDINAL[CardCodec.ordinal(kindCard(kind))] = kind;
+        }
+    }
+
+    private QuestSolver() {
+    }
+
+    // Return whether the given cards can build a quest of the given length.
+    public static boolean canSponsor(final List<Card> hand, final int questLength) {
+        return solve(countKinds(hand), questLength, 0, Goal.CHEAPEST) != NONE;
+    }
+
+    // Return the best build of a quest of the given length from the given cards for the goal, as
+    // the cards of each stage in order, or null if there is none.
+    public static List<List<Card>> build(final List<Card> hand, final int questLength,
+            final Goal goal) {
+        return build(hand, questLength, 0, goal);
+    }
+
+    // Return the best build of the remaining stages of a quest, the first of them worth more than
+    // prevValue, or null if there is none. Any prevValue will do: below 0 it is no bar at all, and
+    // no stage can be worth more than MAX_STAGE_VALUE.
+    public static List<List<Card>> build(final List<Card> hand, final int stages,
+            final int prevValue, final Goal goal) {
+        if (prevValue >= MAX_STAGE_VALUE) {
+            return null;
+        }
+        int[] counts = countKinds(hand);
+        int stageValue = Math.max(prevValue, 0);
+        if (solve(counts, stages, stageValue, goal) == NONE) {
+            return null;
+        }
+
+        // Follow the best choice of each stage
+        List<List<Card>> build = new ArrayList<>(stages);
+        for (int stagesLeft = stages; stagesLeft > 0; stagesLeft--) {
+            int solution = solve(counts, stagesLeft, stageValue, goal);
+            int foe = foeOf(solution);
+            int weapons = weaponsOf(solution);
+
+            List<Card> stage = new ArrayList<>();
+            stage.add(FOES.get(foe));
+            stage.addAll(AttackSolver.cards(weapons));
+            build.add(stage);
+
+            use(counts, foe, weapons, -1);
+            stageValue = FOES.get(foe).getValue() + AttackSolver.value(weapons);
+        }
+        return build;
+    }
+
+    // Return the best solution for building the given number of stages, each worth more than the
+    // one before, starting above prevValue, or NONE if there is none. A solution packs the total
+    // value of its stages (bits 0-11), and the Foe kind (bits 12-15) and Weapons (bits 16-21) of
+    // its first stage.
+    private static int solve(final int[] counts, final int stagesLeft, final int prevValue,
+            final Goal goal) {
+        if (stagesLeft == 0) {
+            return 0;
+        }
+
+        int foes = 0;
+        for (int foe = 0; foe < FOES.size(); foe++) {
+            foes += counts[foe];
+        }
+        if (foes < stagesLeft) {
+            return NONE; // Each stage needs its own Foe
+        }
+
+        long key = positionKey(counts, stagesLeft, prevValue, goal);
+        Memo known = memo.get();
+        int slot = known.slotOf(key);
+        if (known.keys[slot] == key) {
+            return known.solutions[slot];
+        }
+
+        int heldWeapons = 0;
+        for (int w = 0; w < WEAPON_KINDS; w++) {
+            if (counts[FOES.size() + w] > 0) {
+                heldWeapons |= 1 << w;
+            }
+        }
+
+        int best = NONE;
+        for (int foe = 0; foe < FOES.size(); foe++) {
+            if (counts[foe] == 0) {
+                continue;
+            }
+            int weaponsNeeded = prevValue + 1 - FOES.get(foe).getValue();
+            if (goal == Goal.CHEAPEST) {
+                // Adding Weapons to a stage that is already enough only uses up cards and raises
+                // the bar for later stages, so only minimal sets of Weapons can be cheapest
+                for (final int weapons : AttackSolver.minimalAttacks(heldWeapons, weaponsNeeded)) {
+                    best = tryStage(counts, stagesLeft, foe, weapons, goal, best);
+                }
+                if (weaponsNeeded <= 0) {
+                    // Foes are in rising value: a stronger Foe alone here is never cheaper, as it
+                    // could swap places with this one wherever this one is used later
+                    break;
+                }
+            } else {
+                for (int weapons = heldWeapons; ; weapons = (weapons - 1) & heldWeapons) {
+                    if (AttackSolver.value(weapons) >= weaponsNeeded) {
+                        best = tryStage(counts, stagesLeft, foe, weapons, goal, best);
+                    }
+                    if (weapons == 0) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        known.keys[slot] = key;
+        known.solutions[slot] = best;
+        return best;
+    }
+
+    // Solve the rest of the quest after a stage of the given Foe and Weapons, returning the better
+    // of that and the best solution so far.
+    private static int tryStage(final int[] counts, final int stagesLeft, final int foe,
+            final int weapons, final Goal goal, final int best) {
+        int stageValue = FOES.get(foe).getValue() + AttackSolver.value(weapons);
+        use(counts, foe, weapons, -1);
+        int rest = solve(counts, stagesLeft - 1, stageValue, goal);
+        use(counts, foe, weapons, 1);
+
+        if (rest == NONE) {
+            return best;
+        }
+        int total = totalOf(rest) + stageValue;
+        if (best == NONE
+                || (goal == Goal.CHEAPEST ? total < totalOf(best) : total > totalOf(best))) {
+            return total | foe << 12 | weapons << 16;
+        }
+        return best;
+    }
+
+    // Take the cards of a stage out of (delta -1) or back into (delta 1) the counts.
+    private static void use(final int[] counts, final int foe, final int weapons,
+            final int delta) {
+        counts[foe] += delta;
+        for (int w = 0; w < WEAPON_KINDS; w++) {
+            if ((weapons & (1 << w)) != 0) {
+                counts[FOES.size() + w] += delta;
+            }
+        }
+    }
+
+    // Count each kind of standard Foe and Weapon in the cards; other cards cannot be used.
+    private static int[] countKinds(final List<Card> hand) {
+        int[] counts = new int[KINDS];
+        for (final Card c : hand) {
+            int ordinal = CardCodec.ordinal(c);
+            if (CardCodec.isStandard(ordinal) && KIND_BY_ORDINAL[ordinal] != NONE) {
+                counts[KIND_BY_ORDINAL[ordinal]]++;
+            }
+        }
+        return counts;
+    }
+
+    // Pack a position into a key: hand counts capped at stagesLeft (bits 0-47), stagesLeft (bits
+    // 48-50), prevValue (bits 51-58) and the goal (bit 59).
+    static long positionKey(final int[] counts, final int stagesLeft, final int prevValue,
+            final Goal goal) {
+        if (stagesLeft > MAX_QUEST_LENGTH) {
+            throw new IllegalArgumentException("Quests have at most " + MAX_QUEST_LENGTH
+                    + " stages, not " + stagesLeft + "!");
+        }
+        if (prevValue < 0 || prevValue > MAX_KEY_VALUE) {
+            throw new IllegalArgumentException("Stage values go from 0 to " + MAX_KEY_VALUE
+                    + " in a key, not " + prevValue + "!");
+        }
+        long key = 0;
+        for (int kind = 0; kind < KINDS; kind++) {
+            key |= (long) Math.min(counts[kind], stagesLeft) << (kind * BITS_PER_KIND);
+        }
+        return key | (long) stagesLeft << 48 | (long) prevValue << 51
+                | (long) goal.ordinal() << 59;
+    }
+
+    // Solutions by position key, in slots picked by a hash of the key. Keys are never 0, as they
+    // always have at least one stage left, so an empty slot never matches.
+    private static class Memo {
+        private final long[] keys = new long[MEMO_SIZE];
+        private final int[] solutions = new int[MEMO_SIZE];
+
+        private int slotOf(final long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 32 ^ h) & (MEMO_SIZE - 1);
+        }
+    }
+
+    private static Card kindCard(final int kind) {
+        return kind < FOES.size() ? FOES.get(kind) : AttackSolver.WEAPONS.get(kind - FOES.size());
+    }
+
+    private static int totalOf(final int solution) {
+        return solution & 0xFFF;
+    }
+
+    private static int foeOf(final int solution) {
+        return (solution >> 12) & 0xF;
+    }
+
+    private static int weaponsOf(final int solution) {
+        return (solution >> 16) & 0x3F;
+    }
+}
@@ -0,0 +1,61 @@
+package com.questgame;
+
+import java.util.*;
+import java.util.random.RandomGenerator;
+
+// An agent making simple random (but always legal) decisions, for simulating games headlessly.
+// Only sponsors quests it can build, always building them as cheaply as it can.
+public class RandomAgent implements PlayerAgent {
+    private static final double SPONSOR_CHANCE = 0.5;
+    private static final double WITHDRAW_CHANCE = 0.3;
+
+    private final RandomGenerator random;
+
+    public RandomAgent(final RandomGenerator random) {
+        this.random = random;
+    }
+
+    public RandomAgent(final long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    @Override
+    public boolean sponsor(final SponsorRequest request) {
+        return random.nextDouble() < SPONSOR_CHANCE
+                && QuestSolver.canSponsor(request.player().getHand(), request.questLength());
+    }
+
+    @Override
+    public List<Card> buildStage(final StageRequest request) {
+        List<List<Card>> build = QuestSolver.build(request.availableCards(),
+                request.questLength() - request.stageNum() + 1, request.previousStageValue(),
+                QuestSolver.Goal.CHEAPEST);
+        if (build == null) {
+            throw new IllegalStateException("Cannot build the rest of the quest!");
+        }
+        return build.getFirst();
+    }
+
+    @Override
+    public boolean withdraw(final WithdrawRequest request) {
+        return random.nextDouble() < WITHDRAW_CHANCE;
+    }
+
+    // Attack with a random selection of the player's (non-repeated) Weapons.
+    @Override
+    public List<Card> buildAttack(final AttackRequest request) {
+        List<Card> attack = new ArrayList<>();
+        for (final Card c : AttackSolver.WEAPONS) {
+            if (request.player().countInHand(c) > 0 && random.nextBoolean()) {
+                attack.add(c);
+            }
+        }
+        return attack;
+    }
+
+    @Override
+    public Card trim(final TrimRequest request) {
+        List<Card> hand = request.player().getHand();
+        return hand.get(random.nextInt(hand.size()));
+    }
+}
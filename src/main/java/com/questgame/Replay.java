@@ -0,0 +1,172 @@
+package com.questgame;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Plays a journaled game again from its seed, with every decision taken from the journal and no
+// input or output, and checks that it plays out exactly as recorded: the same cards drawn, the same
+// decisions asked for in the same order, and the same shields won and lost. A change to the rules
+// that would have changed the recorded game makes its replay fail.
+// The replayed game journals itself into a channel that compares every byte with the recording,
+// rather than keeping a second copy. Only games dealt from their seed can be replayed; a game whose
+// decks were rigged (e.g. Controller scenarios) fails at its first rigged draw.
+public class Replay {
+    private final byte[] recorded;
+    private final long seed;
+    private final List<Journal.Event> decisions; // Decisions in the order they were made
+    private int nextDecision;
+
+    public Replay(final byte[] journal) throws IOException {
+        this.recorded = journal;
+        List<Journal.Event> events = Journal.read(ByteBuffer.wrap(journal));
+        if (events.isEmpty() || !(events.getFirst() instanceof Journal.Seed(long s))) {
+            throw new IOException("The journal does not start with the game's seed!");
+        }
+        this.seed = s;
+
+        this.decisions = new ArrayList<>();
+        for (final Journal.Event e : events) {
+            if (e instanceof Journal.Sponsor || e instanceof Journal.Stage
+                    || e instanceof Journal.Withdraw || e instanceof Journal.Attack
+                    || e instanceof Journal.Trim) {
+                decisions.add(e);
+            }
+        }
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // Replay the whole game, and return it as it ended.
+    public Game run() {
+        return runTurns(Integer.MAX_VALUE);
+    }
+
+    // Replay the given number of turns, or until the game ends if sooner, and return the game.
+    // Replaying the whole game also checks that the journal has nothing left over.
+    public Game runTurns(final int turns) {
+        nextDecision = 0;
+        VerifyingChannel verifier = new VerifyingChannel();
+        Journal journal = new Journal(verifier);
+
+        Game game = new Game(null, null, seed);
+        game.setJournal(journal);
+        game.initGame();
+        List<PlayerAgent> agents = new ArrayList<>();
+        for (int seat = 0; seat < game.getPlayerCount(); seat++) {
+            agents.add(new JournalAgent(seat));
+        }
+        game.setAgents(agents);
+
+        while (game.getTurnCount() < turns && game.getWinners().isEmpty()) {
+            game.runTurn();
+        }
+
+        try {
+            journal.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!game.getWinners().isEmpty() && verifier.position != recorded.length) {
+            throw new IllegalStateException("The game ended after " + verifier.position
+                    + " bytes of its journal, but " + recorded.length + " were recorded!");
+        }
+        return game;
+    }
+
+    // Return the next decision in the journal, checking that it is the one the game asks for.
+    private <T extends Journal.Event> T nextDecision(final Class<T> kind, final int seat) {
+        if (nextDecision == decisions.size()) {
+            throw new IllegalStateException("The game asked P" + (seat + 1) + " for a "
+                    + kind.getSimpleName() + " decision after the last one in the journal!");
+        }
+
+        Journal.Event decision = decisions.get(nextDecision);
+        int decisionSeat = switch (decision) {
+            case Journal.Sponsor d -> d.seat();
+            case Journal.Withdraw d -> d.seat();
+            case Journal.Attack d -> d.seat();
+            case Journal.Trim d -> d.seat();
+            default -> seat; // Stages are always built by the sponsor
+        };
+        if (!kind.isInstance(decision) || decisionSeat != seat) {
+            throw new IllegalStateException("The game asked P" + (seat + 1) + " for a "
+                    + kind.getSimpleName() + " decision, but decision " + nextDecision
+                    + " in the journal is " + decision + "!");
+        }
+
+        nextDecision++;
+        return kind.cast(decision);
+    }
+
+    // Makes the decisions of one player as recorded in the journal.
+    private class JournalAgent implements PlayerAgent {
+        private final int seat;
+
+        private JournalAgent(final int seat) {
+            this.seat = seat;
+        }
+
+        @Override
+        public boolean sponsor(final SponsorRequest request) {
+            return nextDecision(Journal.Sponsor.class, seat).sponsored();
+        }
+
+        @Override
+        public List<Card> buildStage(final StageRequest request) {
+            return nextDecision(Journal.Stage.class, seat).cards();
+        }
+
+        @Override
+        public boolean withdraw(final WithdrawRequest request) {
+            return nextDecision(Journal.Withdraw.class, seat).withdrew();
+        }
+
+        @Override
+        public List<Card> buildAttack(final AttackRequest request) {
+            return nextDecision(Journal.Attack.class, seat).cards();
+        }
+
+        @Override
+        public Card trim(final TrimRequest request) {
+            return nextDecision(Journal.Trim.class, seat).card();
+        }
+    }
+
+    // Takes the replayed game's journal and checks it against the recorded one as it is written.
+    private class VerifyingChannel implements WritableByteChannel {
+        private int position; // Bytes checked so far
+
+        @Override
+        public int write(final ByteBuffer src) {
+            int length = src.remaining();
+            int end = Math.min(position + length, recorded.length);
+            byte[] written = new byte[length];
+            src.get(written);
+
+            int mismatch = Arrays.mismatch(written, 0, end - position, recorded, position, end);
+            if (mismatch >= 0 || end - position < length) {
+                int at = position + (mismatch >= 0 ? mismatch : end - position);
+                throw new IllegalStateException(
+                        "The replayed game differs from its journal at byte " + at + "!");
+            }
+            position += length;
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
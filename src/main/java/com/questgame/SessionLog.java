@@ -0,0 +1,132 @@
+package com.questgame;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// What a game session has produced, in order, for streaming to clients (see Controller.stream()).
+// Each entry gets the next ID, from 1, so a client that reconnects can say where it left off.
+// Only the most recent entries are kept, up to MAX_RETAINED_SIZE in total size, so a session's
+// memory stays bounded however far behind (or absent) its clients are; a client that falls
+// further behind than that is told so by after(), and starts again from the current state.
+// The game thread appends without ever waiting on clients. Waits use a java.util.concurrent lock
+// rather than a monitor, so the threads streaming a log can be virtual threads.
+public class SessionLog {
+    public static final int MAX_RETAINED_SIZE = 32 * 1024; // About this many chars of output
+    private static final int STATE_SIZE = 256; // Rough size of an entry that is not output text
+
+    // An entry in the log: output text as a map, or a GameSession.State.
+    public record Entry(long id, String type, Object data) {
+    }
+
+    private final ArrayDeque<Entry> entries; // Oldest first
+    private final ArrayDeque<Integer> sizes; // Size of each entry, in the same order
+    private int retainedSize;
+    private long lastId;
+    private boolean closed; // Whether nothing more will be added
+    private final ReentrantLock lock; // Guards all of the above
+    private final Condition changed; // Signalled when an entry is added or the log is closed
+
+    public SessionLog() {
+        this.entries = new ArrayDeque<>();
+        this.sizes = new ArrayDeque<>();
+        this.retainedSize = 0;
+        this.lastId = 0;
+        this.closed = false;
+        this.lock = new ReentrantLock();
+        this.changed = lock.newCondition();
+    }
+
+    // Add a chunk of output text.
+    public void appendOutput(final String text) {
+        append("output", Map.of("text", text), text.length());
+    }
+
+    // Add a snapshot of the session's state.
+    public void appendState(final GameSession.State state) {
+        append("state", state, STATE_SIZE);
+    }
+
+    private void append(final String type, final Object data, final int size) {
+        lock.lock();
+        try {
+            entries.addLast(new Entry(++lastId, type, data));
+            sizes.addLast(size);
+            retainedSize += size;
+            while (retainedSize > MAX_RETAINED_SIZE && entries.size() > 1) {
+                entries.removeFirst();
+                retainedSize -= sizes.removeFirst();
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getLastId() {
+        lock.lock();
+        try {
+            return lastId;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Mark the log as complete, e.g. once its game has ended.
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Return the entries after the given ID, waiting up to the given time for there to be any (an
+    // empty list if there are none by then, or the log is closed). Return null if some of them are
+    // no longer kept, or the ID is not one this log has given out.
+    public List<Entry> after(final long id, final Duration timeout) throws InterruptedException {
+        lock.lock();
+        try {
+            if (id > lastId) {
+                return null;
+            }
+            long left = timeout.toNanos();
+            while (lastId <= id && !closed) {
+                if (left <= 0) {
+                    return List.of();
+                }
+                left = changed.awaitNanos(left);
+            }
+
+            if (lastId == id) {
+                return List.of();
+            } else if (entries.getFirst().id() > id + 1) {
+                return null;
+            }
+            List<Entry> newer = new ArrayList<>((int) (lastId - id));
+            for (final Entry e : entries) {
+                if (e.id() > id) {
+                    newer.add(e);
+                }
+            }
+            return newer;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.questgame;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The game sessions hosted by the server, by game ID, and the threads their games run on. Safe to
+// use from any number of request threads at once. The server has one, shared by every way of
+// playing (see Controller and PlaySocket).
+// Each game loop runs on a virtual thread of its own, so a game waiting on a player costs little
+// more than its memory, and a server can hold many thousands of them. At most maxGames are hosted
+// at once (set with questgame.max-games); sessions nobody has used for idleTimeout (set with
+// questgame.idle-timeout), whether still playing or ended, are cancelled and dropped as new games
+// are created.
+@Component
+public class SessionRegistry {
+    public static final int DEFAULT_MAX_GAMES = 10_000;
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+    private static final Duration SWEEP_INTERVAL = Duration.ofMinutes(1);
+    private static final Duration CANCEL_TIMEOUT = Duration.ofSeconds(1); // For a loop to end
+
+    private final ConcurrentMap<String, GameSession> sessions;
+    private final Set<GameSession> unstarted; // Created sessions holding a reservation, not started
+    private final ExecutorService executor; // Runs the game loops, one virtual thread per game
+    private final int maxGames;
+    private final Duration idleTimeout;
+
+    private final AtomicInteger liveGames; // Sessions created whose game loop has not ended yet
+    private final AtomicInteger gameThreads; // Game loops running now
+    private final AtomicLong lastSweep; // System.nanoTime() of the last sweep for idle sessions
+
+    public SessionRegistry() {
+        this(DEFAULT_MAX_GAMES, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    @Autowired
+    public SessionRegistry(@Value("${questgame.max-games:10000}") final int maxGames,
+            @Value("${questgame.idle-timeout:30m}") final Duration idleTimeout) {
+        this.sessions = new ConcurrentHashMap<>();
+        this.unstarted = ConcurrentHashMap.newKeySet();
+        this.executor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("game-", 0).factory());
+        this.maxGames = maxGames;
+        this.idleTimeout = idleTimeout;
+        this.liveGames = new AtomicInteger();
+        this.gameThreads = new AtomicInteger();
+        this.lastSweep = new AtomicLong(System.nanoTime());
+    }
+
+    // Create a session for a new game under a new, unguessable ID; it counts towards maxGames from
+    // now on, so it must be started (see start()) or cancelled. Throw IllegalStateException if
+    // there are maxGames already, even once idle ones are dropped.
+    public GameSession create() throws IOException, InterruptedException {
+        long now = System.nanoTime();
+        long last = lastSweep.get();
+        if (now - last > SWEEP_INTERVAL.toNanos() && lastSweep.compareAndSet(last, now)) {
+            sweep();
+        }
+        if (!reserveGame()) {
+            sweep();
+            if (!reserveGame()) {
+                throw new IllegalStateException("Too many games in progress; try again later");
+            }
+        }
+
+        GameSession session;
+        try {
+            session = new GameSession(UUID.randomUUID().toString());
+        } catch (IOException | RuntimeException e) {
+            liveGames.decrementAndGet();
+            throw e;
+        }
+        unstarted.add(session);
+        sessions.put(session.getId(), session);
+        return session;
+    }
+
+    // Count one more game in progress, unless there are maxGames already. Return whether it did.
+    private boolean reserveGame() {
+        int live;
+        do {
+            live = liveGames.get();
+            if (live >= maxGames) {
+                return false;
+            }
+        } while (!liveGames.compareAndSet(live, live + 1));
+        return true;
+    }
+
+    // Start the game loop of a session created here. One cancelled first has given its place up
+    // already; its loop ends at once.
+    public void start(final GameSession session) {
+        boolean reserved = unstarted.remove(session);
+        gameThreads.incrementAndGet();
+        session.start(executor, () -> {
+            gameThreads.decrementAndGet();
+            if (reserved) {
+                liveGames.decrementAndGet();
+            }
+        });
+    }
+
+    // Cancel a session, giving its place up at once if it was never started, as no loop will.
+    private void cancel(final GameSession session) {
+        session.cancel();
+        if (unstarted.remove(session)) {
+            liveGames.decrementAndGet();
+        }
+    }
+
+    // Return the session with the given ID, or null if there is none.
+    public GameSession get(final String id) {
+        return sessions.get(id);
+    }
+
+    public GameSession remove(final String id) {
+        return sessions.remove(id);
+    }
+
+    // End the game with the given ID, if there is one, and drop its session; its game loop has
+    // ended on return (unless it takes longer than CANCEL_TIMEOUT), so it no longer counts towards
+    // maxGames. Return whether there was one.
+    public boolean cancel(final String id) throws InterruptedException {
+        GameSession session = sessions.remove(id);
+        if (session == null) {
+            return false;
+        }
+        cancel(session);
+        session.awaitEnd(CANCEL_TIMEOUT);
+        return true;
+    }
+
+    // Cancel and drop every session idle for longer than idleTimeout.
+    private void sweep() throws InterruptedException {
+        List<GameSession> idle = new ArrayList<>();
+        for (final GameSession session : sessions.values()) {
+            if (session.getIdleTime().compareTo(idleTimeout) > 0
+                    && sessions.remove(session.getId(), session)) {
+                cancel(session);
+                idle.add(session);
+            }
+        }
+        for (final GameSession session : idle) { // Cancelled together, so they end together
+            session.awaitEnd(CANCEL_TIMEOUT);
+        }
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    // The number of game loops running now, each on a thread of its own.
+    public int getGameThreads() {
+        return gameThreads.get();
+    }
+
+    public int getMaxGames() {
+        return maxGames;
+    }
+}
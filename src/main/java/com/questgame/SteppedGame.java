@@ -0,0 +1,256 @@
+package com.questgame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+// A game played one decision at a time without blocking: currentPrompt() says what decision the
+// game is waiting on, and apply() makes it and runs the game on to the next one. No thread waits
+// for input between decisions, so an idle game is only its state.
+// Decisions are made by agents inside Game.runTurn(), so every rule is Game's own. The game keeps a
+// snapshot from the start of the current turn and the actions applied since; each step restores
+// the snapshot and runs the turn again with those actions, stopping at the first decision without
+// one. Listeners are told of each event once, as the step that makes it happen runs.
+// That replay is the price of keeping the rules in Game alone: a turn of k decisions costs O(k^2)
+// game work to step through (plus a restore and a thrown Suspend per step), not O(k). Random agents
+// make about 12 decisions a turn and at most about 35, and a stepped game runs some 30 times slower
+// than the same game run straight through (see SteppedBenchmark). That is still well under a
+// millisecond a step, which is nothing next to the time a person takes to decide.
+// Snapshots keep where the decks are in their random streams, so a stepped game deals just as a
+// game run straight through with the same seed and the same decisions does.
+public class SteppedGame {
+    // A decision the game is waiting on, and what the player deciding can see.
+    public sealed interface Prompt {
+        String player();
+
+        record Sponsor(String player, List<Card> hand, int questLength) implements Prompt {
+        }
+
+        // availableCards is the sponsor's hand without the cards used in earlier stages.
+        record BuildStage(String player, List<Card> availableCards, int stageNum, int questLength,
+                int previousStageValue) implements Prompt {
+        }
+
+        record Withdraw(String player, List<Card> hand, int stageNum, int questLength)
+                implements Prompt {
+        }
+
+        record BuildAttack(String player, List<Card> hand, int stageNum, int questLength)
+                implements Prompt {
+        }
+
+        record Trim(String player, List<Card> hand) implements Prompt {
+        }
+    }
+
+    // A decision, one kind for each kind of prompt (see PlayerAgent for what each must follow).
+    public sealed interface Action {
+        record Sponsor(boolean sponsored) implements Action {
+        }
+
+        record BuildStage(List<Card> cards) implements Action {
+        }
+
+        record Withdraw(boolean withdrew) implements Action {
+        }
+
+        record BuildAttack(List<Card> cards) implements Action {
+        }
+
+        record Trim(Card card) implements Action {
+        }
+    }
+
+    private final List<GameListener> listeners;
+    private byte[] turnStart; // Snapshot of the game at the start of the current turn
+    private final List<Action> turnActions; // Actions applied in the current turn, in order
+    private int turnEventsPublished; // Events of the current turn listeners have been told of
+    private boolean started; // Whether the game has been run to its first prompt
+    private Game game; // The game as of the current prompt
+    private Prompt prompt; // The decision the game is waiting on, or null once it has ended
+
+    // Start a new game from the given seed.
+    public SteppedGame(final long seed) {
+        this(newGameSnapshot(seed));
+    }
+
+    // Continue a game from a snapshot taken between turns (see Game.snapshot()).
+    // Nothing runs until the game is first looked at, so listeners added before then are told of
+    // every event.
+    public SteppedGame(final byte[] snapshot) {
+        this.listeners = new ArrayList<>();
+        this.turnStart = snapshot;
+        this.turnActions = new ArrayList<>();
+        this.turnEventsPublished = 0;
+        this.started = false;
+    }
+
+    private static byte[] newGameSnapshot(final long seed) {
+        Game game = new Game(null, null, seed);
+        game.initGame();
+        return game.snapshot();
+    }
+
+    // Return the decision the game is waiting on, or null if the game has ended.
+    public Prompt currentPrompt() {
+        start();
+        return prompt;
+    }
+
+    public boolean isFinished() {
+        return currentPrompt() == null;
+    }
+
+    // Return the game as of the current prompt, to look at. It is replaced at the next step, so
+    // changes to it are lost.
+    public Game getGame() {
+        start();
+        return game;
+    }
+
+    // Tell the given listener of every event in the game from the next step on.
+    public void addListener(final GameListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(final GameListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Make the decision the game is waiting on, and run the game on to the next one.
+    // An action of the wrong kind, or one that breaks the rules, throws an IllegalStateException
+    // and leaves the game waiting on the same decision.
+    public void apply(final Action action) {
+        if (currentPrompt() == null) {
+            throw new IllegalStateException("The game has ended; there is nothing to decide!");
+        }
+
+        turnActions.add(action);
+        try {
+            advance();
+        } catch (RuntimeException e) {
+            turnActions.removeLast();
+            throw e;
+        }
+    }
+
+    private void start() {
+        if (!started) {
+            started = true;
+            advance();
+        }
+    }
+
+    // Run the current turn from its start with the actions applied so far, and on through any
+    // turns after it, until a decision without an action is asked for or the game ends.
+    private void advance() {
+        while (true) {
+            Game g = Game.restore(turnStart);
+
+            List<GameEvent> events = new ArrayList<>(); // Kept even with no listeners, to count
+            g.addListener(events::add);
+            Replayer replayer = new Replayer();
+            List<PlayerAgent> agents = new ArrayList<>();
+            for (int seat = 0; seat < g.getPlayerCount(); seat++) {
+                agents.add(replayer);
+            }
+            g.setAgents(agents);
+
+            try {
+                g.runTurn();
+            } catch (Suspend s) {
+                game = g;
+                prompt = s.prompt;
+                turnEventsPublished = publishFrom(events, turnEventsPublished);
+                return;
+            }
+
+            if (!g.getWinners().isEmpty()) {
+                g.printGameEnd(g.getWinners());
+                game = g;
+                prompt = null;
+                publishFrom(events, turnEventsPublished);
+                return;
+            }
+            publishFrom(events, turnEventsPublished);
+            turnStart = g.snapshot();
+            turnActions.clear();
+            turnEventsPublished = 0;
+        }
+    }
+
+    // Tell listeners of the events from the given index on, and return the number of events.
+    private int publishFrom(final List<GameEvent> events, final int first) {
+        for (final GameEvent e : events.subList(first, events.size())) {
+            for (final GameListener listener : listeners) {
+                listener.onEvent(e);
+            }
+        }
+        return events.size();
+    }
+
+    // Thrown out of a turn when it asks for a decision that has not been made yet.
+    private static class Suspend extends RuntimeException {
+        private final Prompt prompt;
+
+        private Suspend(final Prompt prompt) {
+            super(null, null, false, false); // Control flow only: no stack trace
+            this.prompt = prompt;
+        }
+    }
+
+    // Makes every player's decisions from the actions applied in the turn, in order.
+    private class Replayer implements PlayerAgent {
+        private int nextAction;
+
+        // Return the next action, checking it is of the kind asked for, or suspend the turn on the
+        // given prompt if there is none.
+        private <T extends Action> T next(final Class<T> kind, final Supplier<Prompt> asked) {
+            if (nextAction == turnActions.size()) {
+                throw new Suspend(asked.get());
+            }
+
+            Action action = turnActions.get(nextAction);
+            if (!kind.isInstance(action)) {
+                throw new IllegalStateException("The game is waiting on a "
+                        + kind.getSimpleName() + " decision, not " + action + "!");
+            }
+            nextAction++;
+            return kind.cast(action);
+        }
+
+        @Override
+        public boolean sponsor(final SponsorRequest request) {
+            return next(Action.Sponsor.class, () -> new Prompt.Sponsor(request.player().getID(),
+                    request.player().viewHand(), request.questLength())).sponsored();
+        }
+
+        @Override
+        public List<Card> buildStage(final StageRequest request) {
+            return next(Action.BuildStage.class, () -> new Prompt.BuildStage(
+                    request.sponsor().getID(), List.copyOf(request.availableCards()),
+                    request.stageNum(), request.questLength(), request.previousStageValue()))
+                    .cards();
+        }
+
+        @Override
+        public boolean withdraw(final WithdrawRequest request) {
+            return next(Action.Withdraw.class, () -> new Prompt.Withdraw(request.player().getID(),
+                    request.player().viewHand(), request.stageNum(), request.questLength()))
+                    .withdrew();
+        }
+
+        @Override
+        public List<Card> buildAttack(final AttackRequest request) {
+            return next(Action.BuildAttack.class, () -> new Prompt.BuildAttack(
+                    request.player().getID(), request.player().viewHand(), request.stageNum(),
+                    request.questLength())).cards();
+        }
+
+        @Override
+        public Card trim(final TrimRequest request) {
+            return next(Action.Trim.class, () -> new Prompt.Trim(request.player().getID(),
+                    request.player().viewHand())).card();
+        }
+    }
+}
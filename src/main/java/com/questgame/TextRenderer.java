@@ -0,0 +1,66 @@
+package com.questgame;
+
+// Writes the events of a game to its text output, as the feedback players read in the console and
+// in the web UI's game text.
+public class TextRenderer implements GameListener {
+    private final GameIO io;
+
+    public TextRenderer(final GameIO io) {
+        this.io = io;
+    }
+
+    @Override
+    public void onEvent(final GameEvent event) {
+        switch (event) {
+            case GameEvent.TurnStarted e -> {
+                io.println("[" + e.player() + "]'s Turn:");
+                io.println(Card.cardsToString(e.hand()));
+            }
+            case GameEvent.EventDrawn e -> {
+                io.println("Drawing an Event card...");
+                if (e.event().getCardType() == Card.CardType.QUEST) {
+                    io.println("A Quest of " + e.event().getValue() + " stages!");
+                } else {
+                    io.println("Event: " + e.event().getName() + " - " + describe(e.event()));
+                }
+            }
+            case GameEvent.ShieldsLost e ->
+                    io.println("Your shield count is now " + e.shields() + ".");
+            case GameEvent.EventCardsDrawn e ->
+                    io.println(e.player() + ": you drew " + Card.cardsToString(e.cards()) + ".");
+            case GameEvent.HandUpdated e -> io.println("Hand: " + Card.cardsToString(e.hand()));
+            case GameEvent.NoSponsor e -> io.println("No sponsor was found.");
+            case GameEvent.StageBuilt e ->
+                    io.println("Stage Completed: " + Card.cardsToString(e.cards()));
+            case GameEvent.StageStarted e -> io.println("[Stage " + e.stageNum() + "]"
+                    + "\nEligible players: " + String.join(", ", e.eligible()));
+            case GameEvent.ParticipantDrew e -> io.println("Drew 1 card: " + e.card().getCardID());
+            case GameEvent.AttackStarted e ->
+                    io.println(e.player() + ": Build an attack for stage " + e.stageNum());
+            case GameEvent.AttackBuilt e -> {
+                io.print("Attack Built (Value " + e.value() + "): ");
+                io.println(Card.cardsToString(e.cards()));
+            }
+            case GameEvent.StageResolved e -> io.println(
+                    e.player() + ": You have " + (e.won() ? "won" : "lost") + " the stage.");
+            case GameEvent.QuestWon e -> io.println("You have won the quest! You also get "
+                    + e.shieldsWon() + " shields. You now have " + e.shields() + " shields.");
+            case GameEvent.QuestEnded e -> io.println(
+                    "The quest is over. The sponsor will draw " + e.cardsDrawn() + " cards.");
+            case GameEvent.GameEnded e -> io.println("\nThe game has concluded!"
+                    + "\nWinner(s): " + String.join(", ", e.winners()));
+        }
+        io.flush();
+    }
+
+    // Describe the effect of an Event card.
+    static String describe(final Card event) {
+        return switch (event.getName()) {
+            case "Plague" -> "Current player loses 2 Shields";
+            case "Queen's Favor" -> "Current player draws 2 Adventure cards";
+            case "Prosperity" -> "All players draw 2 Adventure cards";
+            default -> throw new RuntimeException(
+                    "Undefined event card '" + event.getName() + "'!");
+        };
+    }
+}
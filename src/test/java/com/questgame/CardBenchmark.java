@@ -0,0 +1,48 @@
+package com.questgame;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// JMH benchmarks for card parsing; see README.md for how to run them.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CardBenchmark {
+    // A rigged hand and deck as parsed by the scenarios in Controller.newGame, mixing IDs and
+    // aliases.
+    private static final String SCENARIO_CARDS =
+            "F5 F5 F15 F15 D5 S10 S10 H10 H10 B15 B15 L20 F30 Sword Battle-axe F10 Lance Lance";
+
+    private Game game;
+
+    @Setup
+    public void setup() {
+        game = new Game();
+    }
+
+    @Benchmark
+    public List<Card> parseScenarioCards() {
+        return Card.stringToCards(SCENARIO_CARDS);
+    }
+
+    @Benchmark
+    public Card parseID() {
+        return new Card("B15");
+    }
+
+    @Benchmark
+    public Card parseAlias() {
+        return new Card("Battle-axe");
+    }
+
+    @Benchmark
+    public Deck initDecks() {
+        game.initDecks();
+        return game.getAdventureDeck();
+    }
+}
@@ -4,12 +4,20 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -94,6 +102,1314 @@ public class CustomTest {
                         new Card("Prosperity")));
     }
 
+    @Test
+    void card_of_returns_shared_instances() {
+        assertSame(Card.of("S10"), Card.of("Sword"), "ID and alias give the same card");
+        assertSame(Card.of("F70"), Card.stringToCards("F5 F70").get(1));
+        assertSame(Card.of("Queen's Favor"), Card.of("Queen's Favor"));
+
+        assertNotSame(Card.of("F5"), new Card("F5"), "Constructor still makes a new card");
+        assertEquals(Card.of("F5"), new Card("F5"));
+
+        // Cards outside a standard game are still parsed and validated
+        assertEquals(new Card(Card.CardType.FOE, "Foe", 'F', 7), Card.of("F7"));
+        assertThrows(IllegalArgumentException.class, () -> Card.of("Foe"));
+        assertThrows(IllegalArgumentException.class, () -> Card.of("E2"));
+    }
+
+    @Test
+    void card_codec_round_trip() {
+        List<Card> cards = Card.stringToCards("F5 F70 D5 Sword Horse E30 Q5 Plague Prosperity");
+        byte[] encoded = CardCodec.encode(cards);
+
+        assertEquals(cards.size(), encoded.length);
+        assertEquals(cards, CardCodec.decode(encoded));
+        assertEquals(Game.cardSum(cards), CardCodec.cardSum(encoded));
+
+        // Copies of standard cards share their ordinal
+        assertEquals(CardCodec.ordinal(Card.of("H10")),
+                CardCodec.ordinal(new Card(Card.CardType.WEAPON, "Horse", 'H', 10)));
+
+        // Non-standard cards are given a stable ordinal past the standard ones
+        Card f7 = new Card(Card.CardType.FOE, "Foe", 'F', 7);
+        int ordinal = CardCodec.ordinal(f7);
+        assertFalse(CardCodec.isStandard(ordinal));
+        assertEquals(ordinal, CardCodec.ordinal(Card.of("F7")));
+        assertEquals(f7, CardCodec.decode(CardCodec.encode(f7)));
+    }
+
+    @Test
+    void standard_card_ordinals_follow_sort_order() {
+        List<Card> standard = Card.standardCards();
+        for (int i = 1; i < standard.size(); i++) {
+            assertTrue(standard.get(i - 1).compareTo(standard.get(i)) <= 0,
+                    standard.get(i - 1) + " sorts before " + standard.get(i));
+            assertEquals(i, CardCodec.ordinal(standard.get(i)));
+        }
+
+        assertTrue(Card.of("S10").compareTo(Card.of("H10")) < 0, "Sword before Horse");
+        assertTrue(Card.of("F70").compareTo(Card.of("D5")) < 0, "Foes before Weapons");
+        assertEquals(0, Card.of("Plague").compareTo(Card.of("Prosperity")), "Events tie");
+    }
+
+    @Test
+    void hand_matches_sorted_list() {
+        // Mix of standard and non-standard cards, adding and removing in random order
+        List<Card> pool = Card.stringToCards("F5 F7 F10 F70 D5 S10 H10 B15 L20 E30 F1 F100");
+        Random random = new Random(1234);
+
+        Hand hand = new Hand();
+        List<Card> expected = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            if (expected.isEmpty() || random.nextInt(3) > 0) {
+                Card c = pool.get(random.nextInt(pool.size()));
+                hand.add(c);
+                expected.add(c);
+                Collections.sort(expected);
+            } else {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.remove(index), hand.remove(index));
+            }
+
+            assertEquals(expected, hand);
+            assertEquals(expected.size(), hand.size());
+            for (int j = 0; j < expected.size(); j++) {
+                assertEquals(expected.get(j), hand.get(j));
+            }
+        }
+
+        Iterator<Card> iter = hand.iterator();
+        while (iter.hasNext()) {
+            if (iter.next().getCardType() == Card.CardType.WEAPON) {
+                iter.remove();
+            }
+        }
+        expected.removeIf(c -> c.getCardType() == Card.CardType.WEAPON);
+        assertEquals(expected, hand);
+    }
+
+    @Test
+    void card_hash_consistent_with_equals() {
+        for (final Card c : Card.standardCards()) {
+            Card copy = new Card(c.getCardType(), c.getName(), c.getCardID().charAt(0),
+                    c.getValue());
+            assertEquals(c, copy);
+            assertEquals(c.hashCode(), copy.hashCode(), c + " hash");
+        }
+        assertEquals(new Card("F7").hashCode(), Card.of("F7").hashCode());
+
+        CardMultiset multiset = new CardMultiset(Card.stringToCards("F5 F5 H10"));
+        assertEquals(2, multiset.count(new Card(Card.CardType.FOE, "Foe", 'F', 5)));
+        assertTrue(multiset.remove(Card.of("Horse")));
+        assertFalse(multiset.remove(Card.of("Horse")));
+        assertEquals(2, multiset.size());
+    }
+
+    @Test
+    void multiset_operations_match_list_operations() {
+        Random random = new Random(42);
+        List<Card> pool = Card.stringToCards("F5 F10 F15 F40 D5 S10 H10 B15 L20 E30 F7");
+
+        for (int round = 0; round < 200; round++) {
+            List<Card> hand = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                hand.add(pool.get(random.nextInt(pool.size())));
+            }
+            Collections.sort(hand);
+
+            // Pick random cards out of the hand as quest stages
+            List<Card> remaining = new ArrayList<>(hand);
+            Collections.shuffle(remaining, random);
+            List<List<Card>> stages = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                int n = random.nextInt(4);
+                stages.add(new ArrayList<>(remaining.subList(0, n)));
+                remaining.subList(0, n).clear();
+            }
+
+            Game game = new Game();
+            Player sponsor = new Player(1);
+            sponsor.overwriteHand(hand);
+            game.setSponsor(sponsor);
+            game.setQuestStages(stages);
+
+            // Effective hand as previously computed, by removing used cards one by one
+            List<Card> expected = new ArrayList<>(hand);
+            stages.forEach(stage -> stage.forEach(expected::remove));
+            assertEquals(expected, game.viewEffectiveSponsorHand());
+
+            // Sponsor hand after the used cards are removed at the end of the quest
+            CardMultiset used = new CardMultiset();
+            stages.forEach(used::addAll);
+            sponsor.removeFromHand(used);
+            assertEquals(expected, sponsor.getHand());
+            assertTrue(used.isEmpty());
+        }
+    }
+
+    @Test
+    void deck_keeps_order_and_cards_across_refreshes() {
+        Deck deck = new Deck(4); // Small capacity, so the buffer wraps around and grows
+        deck.addToDrawPile(Card.stringToCards("F5 F10 F15"));
+        deck.addToDiscardPile(Card.of("D5"));
+        assertEquals(Card.of("F15"), deck.draw(), "Cards added last are drawn first");
+
+        deck.addToDrawPile(Card.stringToCards("E30 L20 B15"));
+        assertEquals(6, deck.totalSize());
+        for (String id : "B15 L20 E30 F10 F5".split(" ")) {
+            assertEquals(Card.of(id), deck.draw());
+        }
+
+        // Draw pile ran out, so the discard pile became the draw pile
+        assertEquals(1, deck.drawPileSize());
+        assertEquals(0, deck.discardPileSize());
+
+        List<Card> discarded = Card.stringToCards("F20 F25 S10 H10 Q2 Plague");
+        discarded.forEach(deck::addToDiscardPile);
+        List<Card> drawn = new ArrayList<>();
+        while (deck.drawPileSize() > 0) {
+            drawn.add(deck.draw());
+        }
+        List<Card> expected = new ArrayList<>(discarded);
+        expected.add(Card.of("D5"));
+        assertEquals(expected.size(), drawn.size());
+        CardMultiset remaining = new CardMultiset(expected);
+        drawn.forEach(c -> assertTrue(remaining.remove(c), "Drew " + c));
+    }
+
+    @Test
+    void games_with_same_seed_are_identical() {
+        Game game1 = new Game(null, null, 99);
+        Game game2 = new Game(null, null, 99);
+        Game other = new Game(null, null, 100);
+        game1.initGame();
+        game2.initGame();
+        other.initGame();
+
+        assertEquals(99, game1.getSeed());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(game1.getPlayersStartingCurrent().get(i).getHand(),
+                    game2.getPlayersStartingCurrent().get(i).getHand());
+        }
+
+        // Draw through several refreshes of the event deck
+        List<Card> draws1 = new ArrayList<>(), draws2 = new ArrayList<>(),
+                drawsOther = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            draws1.add(game1.drawEventCard());
+            draws2.add(game2.drawEventCard());
+            drawsOther.add(other.drawEventCard());
+            game1.discard(draws1.getLast());
+            game2.discard(draws2.getLast());
+            other.discard(drawsOther.getLast());
+        }
+        assertEquals(draws1, draws2);
+        assertNotEquals(draws1, drawsOther);
+    }
+
+    @Test
+    void decks_of_a_new_game_shuffle_from_separate_streams() {
+        // Before initDecks(), as when a scenario is rigged or a snapshot restored
+        Game game = new Game(null, null, 3);
+        List<Card> cards = Card.stringToCards("F5 F10 F15 F20 F25 F30 F35 F40 F50 F70");
+        List<Card> adventureDraws = new ArrayList<>();
+        List<Card> eventDraws = new ArrayList<>();
+        for (final Deck deck : List.of(game.getAdventureDeck(), game.getEventDeck())) {
+            deck.addToDrawPile(cards);
+            deck.shuffleDeck();
+        }
+        for (int i = 0; i < cards.size(); i++) {
+            adventureDraws.add(game.getAdventureDeck().draw());
+            eventDraws.add(game.getEventDeck().draw());
+        }
+        assertNotEquals(adventureDraws, eventDraws);
+    }
+
+    @Test
+    void lazy_shuffle_draws_uniformly_and_keeps_rigged_order() {
+        List<Card> cards = Card.stringToCards("F5 F10 F15 F20");
+        SplittableRandom random = new SplittableRandom(7);
+        int[][] positionCounts = new int[cards.size()][cards.size()];
+
+        final int TRIALS = 40000;
+        for (int t = 0; t < TRIALS; t++) {
+            Deck deck = new Deck(8, random.split(), Deck.ShuffleMode.LAZY);
+            deck.addToDrawPile(cards);
+            deck.shuffleDeck();
+            deck.addToDrawPile(Card.stringToCards("E30 L20")); // Rigged on top, after shuffling
+
+            assertEquals(Card.of("L20"), deck.draw());
+            assertEquals(Card.of("E30"), deck.draw());
+            for (int position = 0; position < cards.size(); position++) {
+                positionCounts[cards.indexOf(deck.draw())][position]++;
+            }
+        }
+
+        // Every card is equally likely to be drawn at every position
+        for (int[] counts : positionCounts) {
+            for (int count : counts) {
+                assertEquals(TRIALS / cards.size(), count, TRIALS / 50.0);
+            }
+        }
+    }
+
+    @Test
+    void deck_counts_follow_draws_discards_and_refreshes() {
+        Game game = new Game(null, null, 5);
+        game.initDecks();
+        Deck deck = game.getAdventureDeck();
+
+        assertEquals(8, deck.countInDrawPile(Card.of("F5")));
+        assertEquals(16, deck.countInDrawPile(Card.of("Sword")));
+        assertEquals(9, deck.countInDrawPile(
+                c -> c.getCardType() == Card.CardType.FOE && c.getValue() > 30));
+
+        Map<Card, Integer> initialCounts = new HashMap<>();
+        for (final Card c : Card.standardCards()) {
+            initialCounts.put(c, deck.countInDrawPile(c));
+        }
+
+        // Draw many cards, discarding every other one, so the deck refreshes along the way
+        CardMultiset held = new CardMultiset();
+        for (int i = 0; i < 150; i++) {
+            Card c = game.drawAdventureCard();
+            if (i % 2 == 0) {
+                game.discard(c);
+            } else {
+                held.add(c);
+            }
+
+            assertEquals(deck.drawPileSize(), deck.countInDrawPile(card -> true));
+            assertEquals(deck.discardPileSize(), deck.countInDiscardPile(card -> true));
+            for (final Card standard : Card.standardCards()) {
+                assertEquals((int) initialCounts.get(standard), deck.countInDrawPile(standard)
+                        + deck.countInDiscardPile(standard) + held.count(standard));
+            }
+        }
+    }
+
+    @Test
+    void draw_probability_is_hypergeometric() {
+        Deck deck = new Deck();
+        deck.addToDrawPile(Card.of("F5"), 7);
+        deck.addToDrawPile(Card.of("F40"), 3);
+        deck.shuffleDeck();
+
+        Predicate<Card> strongFoe = c -> c.getValue() > 30;
+        // P(at least 1 of 3 in 2 draws from 10) = 1 - C(7,2) / C(10,2)
+        assertEquals(1 - 21.0 / 45, deck.drawProbability(strongFoe, 2, 1), 1e-12);
+        // P(all 3 in 4 draws) = C(7,1) / C(10,4)
+        assertEquals(7.0 / 210, deck.drawProbability(strongFoe, 4, 3), 1e-12);
+        assertEquals(1.0, deck.drawProbability(strongFoe, 10, 3), 1e-12);
+        assertEquals(0.0, deck.drawProbability(strongFoe, 2, 3));
+        assertEquals(1.0, deck.drawProbability(strongFoe, 0, 0));
+    }
+
+    @Test
+    void games_keep_separate_io() {
+        StringWriter output1 = new StringWriter();
+        Game game1 = new Game(new Scanner("13\n"), new PrintWriter(output1));
+        game1.initGame();
+
+        // A second game must not take over the first game's input or output
+        StringWriter output2 = new StringWriter();
+        Game game2 = new Game(new Scanner("1\n"), new PrintWriter(output2));
+        game2.initGame();
+        game2.setSelectionMenuRedirected();
+
+        Player p1 = game1.getCurrentPlayer();
+        p1.overwriteHand(Card.stringToCards("F5 F5 F5 F5 F5 F5 F5 F5 F5 F5 F5 F5 E30"));
+        Player p2 = game2.getCurrentPlayer();
+        p2.overwriteHand(Card.stringToCards("F5 F5 F5 F5 F5 F5 F5 F5 F5 F5 F5 F5 E30"));
+
+        assertEquals("F5 F5 F5 F5 F5 F5 F5 F5 F5 F5 F5 F5", p1.getHandString(), "Trimmed E30");
+        assertEquals("F5 F5 F5 F5 F5 F5 F5 F5 F5 F5 F5 E30", p2.getHandString(), "Trimmed F5");
+        assertTrue(output1.toString().contains("13 - E30"), "Game 1 shows its menu");
+        assertFalse(output2.toString().contains("13 - E30"), "Game 2 menu is redirected");
+    }
+
+    @Test
+    void quests_nobody_sponsors_are_discarded_and_end_the_turn() {
+        // Specification.md: "If all players decline, that Quest Card is considered completed, and
+        // discarded; the current player's turn ends with nothing else happening."
+        Game game = new Game(new Scanner("n\nn\nn\nn\n"), new PrintWriter(new StringWriter()), 0);
+        game.setQuiet(true);
+        game.initGame();
+        Player drawer = game.getCurrentPlayer();
+        game.setCurrentEvent(Card.of("Q2"));
+        game.promptPlayersToSponsor();
+        game.finishQuest();
+
+        assertNull(game.getSponsor());
+        assertEquals(1, game.getEventDeck().countInDiscardPile(Card.of("Q2")));
+        assertSame(game.getNextPlayer(drawer), game.getCurrentPlayer());
+    }
+
+    @Test
+    void trimmed_cards_go_to_the_adventure_discard_pile() {
+        // Specification.md: adventure cards are "drawn, played, and discarded", and each deck's
+        // discard pile is reused once the deck runs out, so excess cards are discarded, not lost.
+        Game game = new Game(new Scanner("13\n"), new PrintWriter(new StringWriter()));
+        game.initGame();
+        Deck deck = game.getAdventureDeck();
+        int discarded = deck.discardPileSize();
+
+        game.getCurrentPlayer().overwriteHand(
+                Card.stringToCards("F5 F5 F5 F5 F5 F5 F5 F5 F5 F5 F5 F5 E30"));
+        assertEquals(discarded + 1, deck.discardPileSize());
+        assertEquals(1, deck.countInDiscardPile(Card.of("E30")));
+    }
+
+    // Play a full headless game of random agents, returning each player's final shields and hand.
+    private static List<String> playRandomGame(final long seed) {
+        Game game = new Game(null, null, seed);
+        game.initGame();
+        List<PlayerAgent> agents = new ArrayList<>();
+        for (int i = 0; i < game.getPlayerCount(); i++) {
+            agents.add(new RandomAgent(seed + i));
+        }
+        game.startGameLoop(agents);
+
+        assertFalse(game.getWinners().isEmpty(), "Game ran until someone won");
+        List<String> results = new ArrayList<>();
+        for (int i = 1; i <= game.getPlayerCount(); i++) {
+            Player p = game.getPlayerByID("P" + i);
+            results.add(p.getShields() + ": " + p.getHandString());
+        }
+        return results;
+    }
+
+    @Test
+    void headless_games_with_agents_run_to_the_end() {
+        for (long seed = 0; seed < 200; seed++) {
+            assertEquals(playRandomGame(seed), playRandomGame(seed),
+                    "Same seeds, same game (seed " + seed + ")");
+        }
+    }
+
+    @Test
+    void journal_records_the_whole_game() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Journal journal = new Journal(Channels.newChannel(bytes));
+        Game game = new Game(null, null, 11);
+        game.setJournal(journal);
+        game.initGame();
+        List<PlayerAgent> agents = new ArrayList<>();
+        for (int i = 0; i < game.getPlayerCount(); i++) {
+            agents.add(new RandomAgent(11 + i));
+        }
+        game.startGameLoop(agents);
+        journal.close();
+
+        List<Journal.Event> events =
+                Journal.read(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(new Journal.Seed(11), events.getFirst());
+        assertEquals(12, ((Journal.AdventureDraw) events.get(1)).cards().size(), "P1's hand");
+
+        // Every card drawn is either still in a hand, or was trimmed or used in a quest
+        int cardsHeld = 0;
+        int[] shields = new int[game.getPlayerCount()];
+        for (final Journal.Event e : events) {
+            switch (e) {
+                case Journal.AdventureDraw draw -> cardsHeld += draw.cards().size();
+                case Journal.Trim trim -> cardsHeld--;
+                case Journal.Stage stage -> cardsHeld -= stage.cards().size();
+                case Journal.Attack attack -> cardsHeld -= attack.cards().size();
+                case Journal.ShieldChange change -> shields[change.seat()] += change.change();
+                default -> {
+                }
+            }
+        }
+        for (int seat = 0; seat < game.getPlayerCount(); seat++) {
+            Player p = game.getPlayerByID("P" + (seat + 1));
+            cardsHeld -= p.getHandSize();
+            assertEquals(p.getShields(), shields[seat], p + "'s shields");
+        }
+        assertEquals(0, cardsHeld, "Cards accounted for");
+
+        // Decisions made from text input are recorded the same way
+        bytes.reset();
+        journal = new Journal(Channels.newChannel(bytes));
+        Game textGame = new Game(new Scanner("n\n\ny\n"), null, 0); // P1 declines, P2 sponsors
+        textGame.setJournal(journal);
+        textGame.initGame();
+        textGame.setCurrentEvent(Card.of("Q2"));
+        textGame.promptPlayersToSponsor();
+        journal.flush();
+
+        events = Journal.read(ByteBuffer.wrap(bytes.toByteArray()));
+        assertEquals(List.of(new Journal.Sponsor(0, false), new Journal.Sponsor(1, true)),
+                events.subList(5, events.size()), "After the seed and 4 hands");
+    }
+
+    @Test
+    void journals_record_trims_by_seat_and_refuse_unknown_cards() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Journal journal = new Journal(Channels.newChannel(bytes));
+        Game game = new Game(new Scanner("13\n"), null, 0);
+        game.setJournal(journal);
+        game.initGame();
+        Player trimming = game.getPlayerByID("P3");
+        trimming.overwriteHand(Card.stringToCards("F5 F5 F5 F5 F5 F5 F5 F5 F5 F5 F5 F5 E30"));
+        journal.eventDraw(Card.of("Q2"));
+        journal.flush();
+
+        byte[] recorded = bytes.toByteArray();
+        List<Journal.Event> events = Journal.read(ByteBuffer.wrap(recorded));
+        assertEquals(new Journal.Trim(game.seatOf(trimming), Card.of("E30")),
+                events.get(events.size() - 2));
+
+        recorded[recorded.length - 1] = (byte) 0xFF; // Not a card ordinal handed out
+        assertThrows(IOException.class, () -> Journal.read(ByteBuffer.wrap(recorded)));
+    }
+
+    // Play a game with random agents, and return its journal.
+    private static byte[] journalRandomGame(final long seed) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Journal journal = new Journal(Channels.newChannel(bytes));
+        Game game = new Game(null, null, seed);
+        game.setJournal(journal);
+        game.initGame();
+        List<PlayerAgent> agents = new ArrayList<>();
+        for (int i = 0; i < game.getPlayerCount(); i++) {
+            agents.add(new RandomAgent(seed + i));
+        }
+        game.startGameLoop(agents);
+        journal.close();
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void replays_match_the_recorded_game() throws IOException {
+        for (long seed = 0; seed < 50; seed++) {
+            Game replayed = new Replay(journalRandomGame(seed)).run();
+            List<String> results = new ArrayList<>();
+            for (int i = 1; i <= replayed.getPlayerCount(); i++) {
+                Player p = replayed.getPlayerByID("P" + i);
+                results.add(p.getShields() + ": " + p.getHandString());
+            }
+            assertEquals(playRandomGame(seed), results, "Seed " + seed);
+        }
+
+        byte[] journal = journalRandomGame(5);
+        assertEquals(3, new Replay(journal).runTurns(3).getTurnCount());
+
+        journal[2] = 12; // Seed 5 (zigzag-encoded as 10) becomes seed 6
+        Replay tampered = new Replay(journal);
+        assertEquals(6, tampered.getSeed());
+        assertThrows(IllegalStateException.class, tampered::run, "Different cards drawn");
+        assertThrows(IOException.class,
+                () -> new Replay(Arrays.copyOf(journalRandomGame(5), 200)), "Cut mid-event");
+
+        // A journal of an unfinished game replays up to where it ends
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Journal unfinished = new Journal(Channels.newChannel(bytes));
+        Game game = new Game(null, null, 5);
+        game.setJournal(unfinished);
+        game.initGame();
+        game.setAgents(List.of(new RandomAgent(5), new RandomAgent(6), new RandomAgent(7),
+                new RandomAgent(8)));
+        for (int turn = 0; turn < 10; turn++) {
+            game.runTurn();
+        }
+        unfinished.close();
+        assertEquals(10, new Replay(bytes.toByteArray()).runTurns(10).getTurnCount());
+        assertThrows(IllegalStateException.class, new Replay(bytes.toByteArray())::run,
+                "Journal ends before the game");
+    }
+
+    @Test
+    void snapshots_restore_a_game_mid_quest() {
+        Game game = new Game(null, null, 3);
+        game.initGame();
+        game.setAgents(List.of(new RandomAgent(1), new RandomAgent(2), new RandomAgent(3),
+                new RandomAgent(4)));
+        for (int turn = 0; turn < 6; turn++) {
+            game.runTurn();
+        }
+
+        // Set up a quest in progress, sponsored by P3 and using a non-standard card
+        Player p3 = game.getPlayerByID("P3");
+        p3.overwriteHand(Card.stringToCards("F5 F7 F10 D5 S10"));
+        game.setCurrentEvent(Card.of("Q3"));
+        game.setSponsor(p3);
+        game.setQuestStages(List.of(Card.stringToCards("F5"), Card.stringToCards("F7 D5")));
+        game.setStageNum(1);
+        game.setEligible(List.of(game.getPlayerByID("P4"), game.getPlayerByID("P1")));
+        game.getAdventureDeck().addToDrawPile(Card.stringToCards("L20 F70")); // F70 drawn first
+
+        byte[] snapshot = game.snapshot();
+        Game restored = Game.restore(snapshot);
+        assertArrayEquals(snapshot, restored.snapshot(), "Nothing lost");
+
+        assertEquals(game.getCurrentPlayer().getID(), restored.getCurrentPlayer().getID());
+        assertEquals(game.getTurnCount(), restored.getTurnCount());
+        assertEquals(Card.of("Q3"), restored.getCurrentEventCard());
+        assertEquals("P3", restored.getSponsor().getID());
+        assertEquals(game.viewQuestStages(), restored.viewQuestStages());
+        assertEquals(1, restored.getStageNum());
+        assertEquals("P4, P1", Player.playersToString(restored.viewEligible()));
+        for (int i = 1; i <= 4; i++) {
+            Player before = game.getPlayerByID("P" + i);
+            Player after = restored.getPlayerByID("P" + i);
+            assertEquals(before.getHandString(), after.getHandString());
+            assertEquals(before.getShields(), after.getShields());
+        }
+        assertEquals(game.getAdventureDeck().drawPileSize(),
+                restored.getAdventureDeck().drawPileSize());
+        assertEquals(game.getEventDeck().discardPileSize(),
+                restored.getEventDeck().discardPileSize());
+        assertEquals(Card.stringToCards("F70 L20"), restored.drawAdventureCards(2), "Rigged order");
+
+        // Restored games play on as usual
+        restored = Game.restore(snapshot);
+        restored.setAgents(List.of(new RandomAgent(5), new RandomAgent(6), new RandomAgent(7),
+                new RandomAgent(8)));
+        restored.finishQuest();
+        restored.startGameLoop();
+        assertFalse(restored.getWinners().isEmpty());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> Game.restore(Arrays.copyOf(snapshot, 40)), "Truncated");
+    }
+
+    @Test
+    void corrupt_snapshot_lengths_are_refused_with_illegal_argument() {
+        CardCodec.ordinal(Card.of("F7")); // So the snapshot describes a non-standard card
+        Game game = new Game(null, null, 4);
+        game.initGame();
+        byte[] snapshot = game.snapshot();
+        int nonStandardCards = 21; // After magic, version, seed, turn count and quests sponsored
+        int firstNameLength = nonStandardCards + 9; // After the count, type, symbol and value
+        int eventDrawPile = snapshot.length - game.getEventDeck().writtenSize() + 9;
+
+        Map<String, byte[]> corrupt = new LinkedHashMap<>();
+        corrupt.put("Card count", ByteBuffer.wrap(snapshot.clone())
+                .putShort(nonStandardCards, Short.MAX_VALUE).array());
+        corrupt.put("Negative name", ByteBuffer.wrap(snapshot.clone())
+                .putShort(firstNameLength, (short) -2).array());
+        corrupt.put("Huge name", ByteBuffer.wrap(snapshot.clone())
+                .putShort(firstNameLength, Short.MAX_VALUE).array());
+        corrupt.put("Huge deck", ByteBuffer.wrap(snapshot.clone())
+                .putInt(eventDrawPile, Integer.MAX_VALUE - 8).array());
+        for (final Map.Entry<String, byte[]> e : corrupt.entrySet()) {
+            assertThrows(IllegalArgumentException.class, () -> Game.restore(e.getValue()),
+                    e.getKey());
+        }
+    }
+
+    @Test
+    void snapshots_continue_the_game_they_were_taken_from() {
+        Game game = new Game(null, null, 8);
+        game.initGame();
+        game.setAgents(List.of(new RandomAgent(1), new RandomAgent(2), new RandomAgent(3),
+                new RandomAgent(4)));
+        for (int turn = 0; turn < 5; turn++) {
+            game.runTurn();
+        }
+
+        Game restored = Game.restore(game.snapshot());
+        assertEquals(game.drawAdventureCards(30), restored.drawAdventureCards(30));
+        for (int i = 0; i < 5; i++) {
+            assertEquals(game.drawEventCard(), restored.drawEventCard());
+        }
+
+        // Both play on alike, given agents that choose alike
+        List<Game> games = List.of(game, restored);
+        for (final Game g : games) {
+            g.setAgents(List.of(new RandomAgent(5), new RandomAgent(6), new RandomAgent(7),
+                    new RandomAgent(8)));
+            for (int turn = 0; turn < 10; turn++) {
+                g.runTurn();
+            }
+        }
+        assertArrayEquals(game.snapshot(), restored.snapshot());
+    }
+
+    @Test
+    void batch_results_do_not_depend_on_parallelism() {
+        BatchRunner.Results serial =
+                new BatchRunner(new ForkJoinPool(1), BatchRunner.RANDOM_AGENTS).run(300, 7);
+        BatchRunner.Results parallel =
+                new BatchRunner(new ForkJoinPool(4), BatchRunner.RANDOM_AGENTS).run(300, 7);
+
+        assertEquals(300, serial.getGames());
+        long wins = 0;
+        for (int seat = 0; seat < 4; seat++) {
+            assertEquals(serial.getWins(seat), parallel.getWins(seat), "Seat " + seat + " wins");
+            wins += serial.getWins(seat);
+        }
+        assertTrue(wins >= 300, "Every game has a winner");
+        assertEquals(serial.getTurns(), parallel.getTurns());
+        assertEquals(serial.getMaxTurns(), parallel.getMaxTurns());
+        assertEquals(serial.getQuestsSponsored(), parallel.getQuestsSponsored());
+        assertTrue(serial.getQuestsSponsored() > 0 && serial.getTurns() > 300);
+
+        Game game = new BatchRunner(BatchRunner.RANDOM_AGENTS).play(BatchRunner.gameSeed(7, 0));
+        assertFalse(game.getWinners().isEmpty());
+    }
+
+    @Test
+    void attack_solver_finds_cheapest_valid_attack() {
+        List<Card> pool = Card.stringToCards("F5 F20 D5 D5 S10 S10 H10 B15 L20 L20 E30");
+        Random random = new Random(99);
+        for (int i = 0; i < 2000; i++) {
+            List<Card> hand = new ArrayList<>();
+            for (final Card c : pool) {
+                if (random.nextBoolean()) {
+                    hand.add(c);
+                }
+            }
+            Player p = new Player(1);
+            p.overwriteHand(hand);
+            int stageValue = random.nextInt(100);
+
+            // Brute force over every set of distinct weapons in the hand
+            List<Card> weapons = hand.stream().filter(c -> c.getCardType() == Card.CardType.WEAPON)
+                    .distinct().toList();
+            int best = Integer.MAX_VALUE;
+            for (int mask = 0; mask < 1 << weapons.size(); mask++) {
+                int value = 0;
+                for (int w = 0; w < weapons.size(); w++) {
+                    value += (mask & (1 << w)) != 0 ? weapons.get(w).getValue() : 0;
+                }
+                if (value >= stageValue) {
+                    best = Math.min(best, value);
+                }
+            }
+
+            List<Card> attack = AttackSolver.cheapestAttack(p, stageValue);
+            if (best == Integer.MAX_VALUE) {
+                assertNull(attack, hand + " cannot beat " + stageValue);
+            } else {
+                assertEquals(best, Game.cardSum(attack), hand + " vs " + stageValue);
+                assertNull(Game.attackError(attack, p.getHand()), "Attack follows the rules");
+            }
+        }
+
+        assertEquals(List.of(), AttackSolver.cheapestAttack(new Player(1), 0), "Nothing to beat");
+        assertEquals(AttackSolver.NONE, AttackSolver.cheapestAttack(0b111111, 91));
+        assertEquals(Card.stringToCards("B15"),
+                AttackSolver.cards(AttackSolver.cheapestAttack(0b001011, 15)), "Not D5 S10");
+    }
+
+    // Return the least and most total value of every valid build of the remaining stages, trying
+    // every stage from the cards left; {MAX_VALUE, MIN_VALUE} if there is none.
+    private static int[] bruteForceQuestTotals(final List<Card> cards, final int stages,
+            final int prevValue) {
+        if (stages == 0) {
+            return new int[] {0, 0};
+        }
+        int[] totals = {Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int mask = 1; mask < 1 << cards.size(); mask++) {
+            List<Card> stage = new ArrayList<>();
+            List<Card> rest = new ArrayList<>();
+            for (int i = 0; i < cards.size(); i++) {
+                ((mask & (1 << i)) != 0 ? stage : rest).add(cards.get(i));
+            }
+            if (Game.stageError(stage, cards, prevValue) == null) {
+                int value = Game.cardSum(stage);
+                int[] after = bruteForceQuestTotals(rest, stages - 1, value);
+                if (after[0] != Integer.MAX_VALUE) {
+                    totals[0] = Math.min(totals[0], value + after[0]);
+                    totals[1] = Math.max(totals[1], value + after[1]);
+                }
+            }
+        }
+        return totals;
+    }
+
+    @Test
+    void quest_solver_matches_brute_force() {
+        List<Card> pool = Card.stringToCards("F5 F5 F10 F15 F20 F25 F40 D5 S10 H10 B15 L20 E30");
+        Random random = new Random(5);
+        for (int i = 0; i < 150; i++) {
+            List<Card> hand = new ArrayList<>();
+            for (final Card c : pool) {
+                if (random.nextInt(3) > 0) {
+                    hand.add(c);
+                }
+            }
+            int questLength = 2 + random.nextInt(3);
+            int[] totals = bruteForceQuestTotals(hand, questLength, 0);
+            boolean feasible = totals[0] != Integer.MAX_VALUE;
+
+            assertEquals(feasible, QuestSolver.canSponsor(hand, questLength),
+                    hand + " Q" + questLength);
+            for (final QuestSolver.Goal goal : QuestSolver.Goal.values()) {
+                List<List<Card>> build = QuestSolver.build(hand, questLength, goal);
+                if (!feasible) {
+                    assertNull(build);
+                    continue;
+                }
+
+                // Build must follow the stage rules, using each card at most once
+                List<Card> available = new ArrayList<>(hand);
+                int prevValue = 0;
+                for (final List<Card> stage : build) {
+                    assertNull(Game.stageError(stage, available, prevValue), hand + ": " + build);
+                    stage.forEach(available::remove);
+                    prevValue = Game.cardSum(stage);
+                }
+                int total = build.stream().mapToInt(Game::cardSum).sum();
+                assertEquals(totals[goal == QuestSolver.Goal.CHEAPEST ? 0 : 1], total,
+                        goal + " " + hand + ": " + build);
+            }
+        }
+
+        assertFalse(QuestSolver.canSponsor(Card.stringToCards("F5 F5 F5"), 2), "Ties fail");
+        assertTrue(QuestSolver.canSponsor(Card.stringToCards("F5 F5 D5"), 2), "F5, then F5 D5");
+        List<Card> hand = Card.stringToCards("F5 F5 D5 S10");
+        assertEquals(List.of(Card.stringToCards("F5"), Card.stringToCards("F5 D5")),
+                QuestSolver.build(hand, 2, QuestSolver.Goal.CHEAPEST));
+
+        // The stage before may be worth anything, even more than the memo's keys can hold
+        assertEquals(QuestSolver.build(hand, 2, 0, QuestSolver.Goal.CHEAPEST),
+                QuestSolver.build(hand, 2, -7, QuestSolver.Goal.CHEAPEST));
+        assertNull(QuestSolver.build(hand, 1, 300, QuestSolver.Goal.STRONGEST));
+        assertNull(QuestSolver.build(hand, 1, 20, QuestSolver.Goal.STRONGEST), "F5 D5 S10 is 20");
+    }
+
+    @Test
+    void advisor_recommends_staying_in_a_winning_stage() {
+        Game game = new Game(null, null, 0);
+        game.initGame();
+        Player p1 = game.getPlayerByID("P1");
+        Player p2 = game.getPlayerByID("P2");
+        p1.addShields(5);
+        p1.overwriteHand(Card.stringToCards("S10 B15 L20 E30"));
+        p2.overwriteHand(Card.stringToCards("F5 F10")); // Stage 2 is dealt again as one Foe
+
+        game.setCurrentEvent(Card.of("Q2"));
+        game.setSponsor(p2);
+        game.setQuestStages(List.of(Card.stringToCards("F5"), Card.stringToCards("F10")));
+        game.setStageNum(2);
+        game.setEligible(new ArrayList<>(List.of(p1)));
+
+        // Rollout players always attack if they can, and P1 can beat any Foe, so staying in always
+        // wins the game
+        Advisor advisor = new Advisor(CustomTest::cheapestAttacker);
+        Advisor.Advice advice = advisor.advise(game,
+                new Advisor.Question(Advisor.Decision.WITHDRAW, p1), Duration.ofMillis(20));
+
+        assertTrue(advice.rollouts() >= 1);
+        assertEquals("stay", advice.recommendedOption());
+        assertEquals(1.0, advice.no().winProbability(), "Staying wins");
+        assertEquals(2.0, advice.no().expectedShields(), "Staying earns the quest's shields");
+        assertEquals(0.0, advice.yes().winProbability(), "Withdrawing does not");
+        assertEquals(0.0, advice.yes().expectedShields());
+
+        assertEquals("S10 B15 L20 E30", p1.getHandString(), "Live game untouched");
+        assertEquals(5, p1.getShields());
+        assertEquals(List.of(p1), game.viewEligible());
+        assertThrows(IllegalStateException.class, () -> advisor.advise(game,
+                new Advisor.Question(Advisor.Decision.SPONSOR, p1), Duration.ZERO), "Has sponsor");
+    }
+
+    // A random player that attacks with the cheapest attack that wins, if there is one.
+    private static PlayerAgent cheapestAttacker(final long gameSeed, final int seat) {
+        return new RandomAgent(gameSeed + seat) {
+            @Override
+            public List<Card> buildAttack(final AttackRequest request) {
+                List<Card> attack =
+                        AttackSolver.cheapestAttack(request.player(), request.stageValue());
+                return attack == null ? List.of() : attack;
+            }
+        };
+    }
+
+    @Test
+    void advice_does_not_depend_on_stages_only_the_sponsor_has_seen() {
+        // The same sponsor hand, built into two different quests of the same stage count
+        List<Advisor.Estimate> estimates = new ArrayList<>();
+        for (final String stages : List.of("F5|F15 D5 S10 H10", "F5 D5|F15 S10 H10")) {
+            Game game = new Game(null, null, 3);
+            game.initGame();
+            Player p1 = game.getPlayerByID("P1");
+            Player p2 = game.getPlayerByID("P2");
+            p1.overwriteHand(Card.stringToCards("F10 D5 S10 B15 L20"));
+            p2.overwriteHand(Card.stringToCards("F5 F15 D5 S10 H10"));
+            game.setCurrentEvent(Card.of("Q2"));
+            game.setSponsor(p2);
+            game.setQuestStages(Arrays.stream(stages.split("\\|")).map(Card::stringToCards)
+                    .toList());
+            game.setStageNum(1);
+            game.setEligible(new ArrayList<>(List.of(p1)));
+
+            // One rollout per worker, each from its own seed, so the advice is the same every run
+            Advisor.Question question = new Advisor.Question(Advisor.Decision.WITHDRAW, p1);
+            Advisor.Position position = new Advisor.Position(question, new Game(game, 11),
+                    game.seatOf(p1), new boolean[] {true, false}, 11);
+            Advisor.Advice advice = new Advisor(new ForkJoinPool(8), CustomTest::cheapestAttacker)
+                    .advise(position, Duration.ZERO);
+            estimates.add(advice.yes());
+            estimates.add(advice.no());
+        }
+
+        assertEquals(estimates.subList(0, 2), estimates.subList(2, 4));
+    }
+
+    @Test
+    void advisor_leaves_sponsor_decision_game_untouched() {
+        Game game = new Game(null, null, 1);
+        game.initGame();
+        game.setCurrentEvent(Card.of("Q3"));
+        Player p1 = game.getCurrentPlayer();
+        String hand = p1.getHandString();
+        int deckSize = game.getAdventureDeck().drawPileSize();
+
+        Advisor.Advice advice = new Advisor(BatchRunner.RANDOM_AGENTS).advise(game,
+                new Advisor.Question(Advisor.Decision.SPONSOR, p1), Duration.ofMillis(20));
+
+        assertTrue(advice.rollouts() >= 1);
+        assertTrue(advice.yes().choice() && !advice.no().choice());
+        assertEquals(hand, p1.getHandString());
+        assertEquals(deckSize, game.getAdventureDeck().drawPileSize());
+        assertNull(game.getSponsor());
+        assertNull(game.getPendingQuestion(), "Not waiting on text input");
+    }
+
+    @Test
+    void advisor_never_recommends_sponsoring_with_a_hand_that_cannot_build_the_quest() {
+        Game game = new Game(null, null, 1);
+        game.initGame();
+        game.setCurrentEvent(Card.of("Q3"));
+        Player p1 = game.getCurrentPlayer();
+        p1.overwriteHand(Card.stringToCards("F5 S10 H10 D5")); // One Foe for three stages
+
+        Advisor.Advice advice = new Advisor(BatchRunner.RANDOM_AGENTS).advise(game,
+                new Advisor.Question(Advisor.Decision.SPONSOR, p1), Duration.ofMillis(20));
+
+        assertTrue(advice.rollouts() >= 1);
+        assertFalse(advice.yes().feasible());
+        assertTrue(advice.no().feasible());
+        assertEquals("decline", advice.recommendedOption());
+        assertEquals("F5 D5 S10 H10", p1.getHandString());
+    }
+
+    @Test
+    void listeners_get_typed_events_that_render_as_the_game_text() {
+        List<GameEvent> events = new ArrayList<>();
+        StringWriter output = new StringWriter();
+        Game game = new Game(null, new PrintWriter(output), 4);
+        game.addListener(events::add);
+        game.initGame();
+        game.startGameLoop(List.of(new RandomAgent(1), new RandomAgent(2), new RandomAgent(3),
+                new RandomAgent(4)));
+
+        assertInstanceOf(GameEvent.TurnStarted.class, events.getFirst());
+        assertEquals(new GameEvent.GameEnded(Player.playersToIDs(game.getWinners())),
+                events.getLast());
+        long turns = events.stream().filter(e -> e instanceof GameEvent.TurnStarted).count();
+        assertEquals(game.getTurnCount(), turns);
+        int shieldsWon = events.stream().mapToInt(
+                e -> e instanceof GameEvent.QuestWon won ? won.shieldsWon() : 0).sum();
+        assertTrue(shieldsWon >= 7, "Someone won enough shields to win");
+
+        // The text is the rendering of the events
+        StringWriter rendered = new StringWriter();
+        TextRenderer renderer = new TextRenderer(new GameIO(null, new PrintWriter(rendered)));
+        events.forEach(renderer::onEvent);
+        assertEquals(rendered.toString(), output.toString());
+
+        GameListener removed = e -> fail("Removed listener told of " + e);
+        Game headless = new Game(null, null, 4);
+        headless.addListener(removed);
+        headless.removeListener(removed);
+        headless.initGame();
+        headless.startGameLoop(List.of(new RandomAgent(1), new RandomAgent(2),
+                new RandomAgent(3), new RandomAgent(4)));
+    }
+
+    @Test
+    void quiet_games_write_nothing_and_do_not_pause() {
+        List<GameEvent> events = new ArrayList<>();
+        StringWriter output = new StringWriter();
+        Game game = new Game(new Scanner("n\nn\nn\nn\n"), new PrintWriter(output), 0);
+        game.setQuiet(true);
+        game.addListener(events::add);
+        game.initGame();
+        game.setCurrentEvent(Card.of("Q2"));
+        game.promptPlayersToSponsor(); // Nobody sponsors
+        game.finishQuest();
+        game.printTurnEndOf(game.getCurrentPlayer()); // Would wait for input that is not there
+
+        assertEquals("", output.toString());
+        assertEquals(List.of(new GameEvent.NoSponsor()), events);
+
+        game.setQuiet(false);
+        game.printGameEnd(List.of());
+        assertFalse(output.toString().isEmpty(), "Text is written again");
+        assertEquals(new GameEvent.GameEnded(List.of()), events.getLast());
+    }
+
+    @Test
+    void stepped_games_play_one_decision_at_a_time() {
+        SteppedGame stepped = new SteppedGame(3);
+        List<GameEvent> events = new ArrayList<>();
+        stepped.addListener(events::add);
+
+        int steps = 0;
+        boolean rejected = false;
+        while (!stepped.isFinished()) {
+            SteppedGame.Prompt prompt = stepped.currentPrompt();
+            if (!rejected && prompt instanceof SteppedGame.Prompt.BuildAttack) {
+                // A wrong or invalid action leaves the game waiting on the same decision
+                assertThrows(IllegalStateException.class,
+                        () -> stepped.apply(new SteppedGame.Action.Withdraw(false)));
+                assertThrows(IllegalStateException.class, () -> stepped.apply(
+                        new SteppedGame.Action.BuildAttack(Card.stringToCards("F70"))));
+                assertEquals(prompt, stepped.currentPrompt());
+                rejected = true;
+            }
+
+            stepped.apply(switch (prompt) {
+                case SteppedGame.Prompt.Sponsor p -> new SteppedGame.Action.Sponsor(
+                        QuestSolver.canSponsor(p.hand(), p.questLength()));
+                case SteppedGame.Prompt.BuildStage p -> new SteppedGame.Action.BuildStage(
+                        QuestSolver.build(p.availableCards(), p.questLength() - p.stageNum() + 1,
+                                p.previousStageValue(), QuestSolver.Goal.CHEAPEST).getFirst());
+                case SteppedGame.Prompt.Withdraw p -> new SteppedGame.Action.Withdraw(false);
+                case SteppedGame.Prompt.BuildAttack p -> new SteppedGame.Action.BuildAttack(
+                        p.hand().stream().filter(c -> c.getCardType() == Card.CardType.WEAPON)
+                                .distinct().toList());
+                case SteppedGame.Prompt.Trim p -> new SteppedGame.Action.Trim(p.hand().getFirst());
+            });
+            steps++;
+        }
+        assertTrue(rejected, "Someone attacked");
+        assertThrows(IllegalStateException.class,
+                () -> stepped.apply(new SteppedGame.Action.Sponsor(false)));
+
+        // Every event was published once, in order
+        Game game = stepped.getGame();
+        assertFalse(game.getWinners().isEmpty());
+        assertTrue(steps > game.getTurnCount(), "Decisions were made");
+        assertEquals(game.getTurnCount(),
+                events.stream().filter(e -> e instanceof GameEvent.TurnStarted).count());
+        assertEquals(new GameEvent.GameEnded(Player.playersToIDs(game.getWinners())),
+                events.getLast());
+        assertEquals(1, events.stream().filter(e -> e instanceof GameEvent.GameEnded).count());
+    }
+
+    @Test
+    void stepped_games_deal_as_games_run_straight_through() {
+        // Play a game straight through, noting each decision its random agents make
+        long seed = 12;
+        List<SteppedGame.Action> actions = new ArrayList<>();
+        RandomAgent random = new RandomAgent(seed);
+        PlayerAgent recording = new PlayerAgent() {
+            @Override
+            public boolean sponsor(final SponsorRequest request) {
+                boolean sponsored = random.sponsor(request);
+                actions.add(new SteppedGame.Action.Sponsor(sponsored));
+                return sponsored;
+            }
+
+            @Override
+            public List<Card> buildStage(final StageRequest request) {
+                List<Card> cards = random.buildStage(request);
+                actions.add(new SteppedGame.Action.BuildStage(List.copyOf(cards)));
+                return cards;
+            }
+
+            @Override
+            public boolean withdraw(final WithdrawRequest request) {
+                boolean withdrew = random.withdraw(request);
+                actions.add(new SteppedGame.Action.Withdraw(withdrew));
+                return withdrew;
+            }
+
+            @Override
+            public List<Card> buildAttack(final AttackRequest request) {
+                List<Card> cards = random.buildAttack(request);
+                actions.add(new SteppedGame.Action.BuildAttack(List.copyOf(cards)));
+                return cards;
+            }
+
+            @Override
+            public Card trim(final TrimRequest request) {
+                Card card = random.trim(request);
+                actions.add(new SteppedGame.Action.Trim(card));
+                return card;
+            }
+        };
+        Game straight = new Game(null, null, seed);
+        straight.initGame();
+        straight.startGameLoop(Collections.nCopies(straight.getPlayerCount(), recording));
+
+        // The same decisions, one step at a time, play out the same game
+        SteppedGame stepped = new SteppedGame(seed);
+        for (final SteppedGame.Action action : actions) {
+            stepped.apply(action);
+        }
+        assertTrue(stepped.isFinished());
+        assertArrayEquals(straight.snapshot(), stepped.getGame().snapshot());
+    }
+
+    @Test
+    void controller_hosts_separate_games_by_id() throws Exception {
+        Controller controller = new Controller();
+        Map<String, Object> first = controller.start("4", null);
+        Map<String, Object> second = controller.start("4", null);
+        String firstId = (String) first.get("gameId");
+        String secondId = (String) second.get("gameId");
+        assertNotEquals(firstId, secondId);
+        assertEquals(first.get("gameText"), second.get("gameText"), "Same scenario, same start");
+
+        assertEquals(true, first.get("awaitingInput"), "Returned once the game waits on input");
+
+        // P1 sponsors in the first game only
+        Map<String, Object> sponsored = controller.submit(firstId, "y");
+        assertTrue(((String) sponsored.get("gameText")).contains("y"));
+        assertTrue(((String) sponsored.get("gameText")).endsWith("> "), "Ends at the prompt");
+        assertFalse(controller.state(firstId).get("currSelectionMenu").equals(List.of()),
+                "The first game asks for stage cards");
+        assertEquals(List.of(), controller.state(secondId).get("currSelectionMenu"),
+                "The second game still waits on P1's answer");
+        assertEquals("", controller.state(secondId).get("gameText"));
+
+        assertThrows(ResponseStatusException.class, () -> controller.submit("nope", "y"));
+    }
+
+    @Test
+    void sessions_take_text_with_line_breaks_as_several_lines() throws Exception {
+        GameSession session = new GameSession("test");
+        Controller.rigScenario(session.getGame(), 4);
+        session.start(ForkJoinPool.commonPool());
+        assertTrue(session.awaitReady(Duration.ofSeconds(5)));
+        session.state();
+
+        // P1 declines, then ends their turn
+        session.submit("n\r\n");
+        assertTrue(session.awaitReady(Duration.ofSeconds(5)), "Read both lines");
+        String text = (String) session.state().get("gameText");
+        assertTrue(text.endsWith("P2: Would you like to sponsor this Quest of 2 stages? (y/n) > "),
+                text);
+
+        // Still ready exactly when the game has read everything
+        session.submit("n\nn");
+        assertTrue(session.awaitReady(Duration.ofSeconds(5)));
+        assertTrue(((String) session.state().get("gameText")).endsWith("(y/n) > "));
+        session.cancel();
+    }
+
+    @Test
+    void sessions_nobody_polls_keep_only_recent_text_and_events() throws Exception {
+        GameSession session = new GameSession("test");
+        session.start(ForkJoinPool.commonPool());
+        for (int i = 0; i < 2000; i++) {
+            session.submit("n"); // Declines, ends turns, and is refused by any card selection
+        }
+        assertTrue(session.awaitReady(Duration.ofSeconds(10)));
+
+        Map<String, Object> state = session.state();
+        String text = (String) state.get("gameText");
+        assertEquals(GameSession.MAX_BUFFERED_OUTPUT, text.length(), "Oldest text dropped");
+        assertTrue(text.endsWith("> "), "Newest text kept");
+        assertTrue(((List<?>) state.get("events")).size() <= GameSession.MAX_BUFFERED_EVENTS);
+        session.cancel();
+    }
+
+    @Test
+    void controller_advises_on_the_question_the_game_waits_on() throws Exception {
+        Controller controller = new Controller();
+        String id = (String) controller.start("4", null).get("gameId");
+
+        Map<String, Object> advice = controller.advice(id, "5");
+        assertEquals("P1", advice.get("player"));
+        assertEquals("sponsor", advice.get("question"));
+        assertTrue((int) advice.get("rollouts") >= 1);
+
+        // Advice is taken from a copy, so the game moves on as soon as it is taken
+        controller.submit(id, "n");
+        assertNull(controller.advice(id, "5").get("question"), "Waits on <return>");
+        controller.submit(id, "");
+        assertEquals("P2", controller.advice(id, "5").get("player"));
+    }
+
+    @Test
+    void controller_refuses_advice_budgets_that_are_not_positive() throws Exception {
+        Controller controller = new Controller();
+        String id = (String) controller.start("4", null).get("gameId");
+        for (final String budgetMs : List.of("abc", "0", "-5", "", "99999999999999999999")) {
+            ResponseStatusException bad = assertThrows(ResponseStatusException.class,
+                    () -> controller.advice(id, budgetMs), budgetMs);
+            assertEquals(HttpStatus.BAD_REQUEST, bad.getStatusCode());
+        }
+
+        // A budget longer than the server allows is cut down to it
+        long start = System.nanoTime();
+        assertEquals("sponsor", controller.advice(id, String.valueOf(Long.MAX_VALUE))
+                .get("question"));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toSeconds() < 10);
+        controller.shutdown();
+    }
+
+    @Test
+    void controller_caps_games_and_ends_the_previous_one() throws Exception {
+        Controller controller = new Controller(new SessionRegistry(1, Duration.ofDays(1)));
+        String firstId = (String) controller.start("4", null).get("gameId");
+        assertEquals(1, controller.metrics().get("liveGameThreads"));
+        ResponseStatusException full =
+                assertThrows(ResponseStatusException.class, () -> controller.start("4", null));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, full.getStatusCode());
+
+        // Starting over ends the game played until now, which makes room for the new one
+        String secondId = (String) controller.start("4", firstId).get("gameId");
+        assertThrows(ResponseStatusException.class, () -> controller.state(firstId));
+        assertEquals(true, controller.state(secondId).get("awaitingInput"));
+        assertEquals(1, controller.metrics().get("liveGameThreads"));
+        assertEquals(1, controller.metrics().get("sessions"));
+
+        // Sessions idle for too long are ended when the next game is created
+        SessionRegistry registry = new SessionRegistry(1, Duration.ZERO);
+        GameSession idle = registry.create();
+        registry.start(idle);
+        assertTrue(idle.awaitReady(Duration.ofSeconds(5)));
+        GameSession next = registry.create();
+        assertTrue(idle.isFinished(), "Cancelled while it waited on input");
+        assertNull(registry.get(idle.getId()));
+        assertSame(next, registry.get(next.getId()));
+        assertThrows(IOException.class, () -> idle.submit("y"));
+    }
+
+    @Test
+    void controller_refuses_streams_resumed_from_a_malformed_event_id() throws Exception {
+        Controller controller = new Controller();
+        String id = (String) controller.start("4", null).get("gameId");
+        for (final String lastEventId : List.of("abc", "-1", "")) {
+            ResponseStatusException bad = assertThrows(ResponseStatusException.class,
+                    () -> controller.stream(id, lastEventId), lastEventId);
+            assertEquals(HttpStatus.BAD_REQUEST, bad.getStatusCode());
+        }
+        assertNotNull(controller.stream(id, " 2 "));
+        controller.shutdown();
+    }
+
+    @Test
+    void registries_give_the_place_of_a_game_cancelled_before_it_starts_up() throws Exception {
+        SessionRegistry registry = new SessionRegistry(1, Duration.ofDays(1));
+        GameSession unstarted = registry.create();
+        assertThrows(IllegalStateException.class, registry::create);
+        assertTrue(registry.cancel(unstarted.getId()));
+
+        // Starting it anyway ends it at once, without giving the place up twice
+        GameSession next = registry.create();
+        registry.start(unstarted);
+        assertTrue(unstarted.awaitEnd(Duration.ofSeconds(5)));
+        assertThrows(IllegalStateException.class, registry::create);
+        registry.start(next);
+        assertTrue(next.awaitReady(Duration.ofSeconds(5)));
+        assertEquals(1, registry.getGameThreads());
+    }
+
+    @Test
+    void session_logs_resume_from_an_id_or_say_they_cannot() throws Exception {
+        SessionLog log = new SessionLog();
+        assertEquals(List.of(), log.after(0, Duration.ZERO), "Nothing yet");
+
+        log.appendOutput("Hello");
+        log.appendState(new GameSession.State(true, false, List.of(), List.of()));
+        List<SessionLog.Entry> entries = log.after(0, Duration.ZERO);
+        assertEquals(List.of(1L, 2L), entries.stream().map(SessionLog.Entry::id).toList());
+        assertEquals(Map.of("text", "Hello"), entries.getFirst().data());
+        assertEquals("state", log.after(1, Duration.ZERO).getFirst().type());
+        assertNull(log.after(3, Duration.ZERO), "Not an ID the log gave out");
+
+        // Old output is dropped once too much is kept
+        String chunk = "x".repeat(1024);
+        for (int i = 0; i < SessionLog.MAX_RETAINED_SIZE / chunk.length(); i++) {
+            log.appendOutput(chunk);
+        }
+        assertNull(log.after(0, Duration.ZERO));
+        assertEquals(1, log.after(log.getLastId() - 1, Duration.ZERO).size());
+
+        log.close();
+        assertEquals(List.of(), log.after(log.getLastId(), Duration.ofDays(1)), "No wait");
+
+        // Sessions log their output and state as the game plays
+        GameSession session = new GameSession("test");
+        session.start(ForkJoinPool.commonPool());
+        assertTrue(session.awaitReady(Duration.ofSeconds(5)));
+        List<SessionLog.Entry> logged = session.getLog().after(0, Duration.ZERO);
+        String text = logged.stream().filter(e -> e.type().equals("output"))
+                .map(e -> (String) ((Map<?, ?>) e.data()).get("text"))
+                .reduce("", String::concat);
+        assertEquals(session.state().get("gameText"), text);
+        assertTrue(((GameSession.State) logged.getLast().data()).awaitingInput());
+    }
+
+    @Test
+    void play_frames_round_trip_and_send_only_changed_players() {
+        String id = "88d8269f-bc24-4fe0-b130-13b43293992b";
+        ByteBuffer frame = PlayProtocol.gameId(PlayProtocol.JOIN, id);
+        assertEquals(17, frame.remaining());
+        assertEquals(PlayProtocol.JOIN, frame.get());
+        assertEquals(id, PlayProtocol.readGameId(frame));
+
+        frame = PlayProtocol.text(PlayProtocol.TEXT, "Königin");
+        assertEquals(PlayProtocol.TEXT, frame.get());
+        assertEquals("Königin", PlayProtocol.readText(frame));
+
+        frame = PlayProtocol.select(Card.stringToCards("F50 D5 L20"));
+        assertEquals(4, frame.remaining(), "A byte per card");
+        assertEquals(PlayProtocol.SELECT, frame.get());
+        assertEquals(Card.stringToCards("F50 D5 L20"), PlayProtocol.readCards(frame));
+
+        GameSession.PlayerState p1 =
+                new GameSession.PlayerState("P1", 0, 2, Card.stringToCards("F5 S10"));
+        GameSession.PlayerState p2 = new GameSession.PlayerState("P2", 1, 0, List.of());
+        PlayProtocol.StateEncoder encoder = new PlayProtocol.StateEncoder();
+        frame = encoder.encode(new GameSession.State(true, false, List.of("F5", "S10"),
+                List.of(p1, p2)), true);
+        assertEquals(PlayProtocol.STATE, frame.get());
+        PlayProtocol.StateFrame state = PlayProtocol.readState(frame);
+        assertTrue(state.has(PlayProtocol.AWAITING_INPUT) && state.has(PlayProtocol.FULL));
+        assertFalse(state.has(PlayProtocol.GAME_OVER));
+        assertEquals(Card.stringToCards("F5 S10"), state.menu());
+        assertEquals(new PlayProtocol.PlayerFrame(0, 2, p1.hand()), state.players().get(0));
+        assertEquals(new PlayProtocol.PlayerFrame(1, 0, List.of()), state.players().get(1));
+
+        // Then only what changed
+        GameSession.PlayerState p2Drew =
+                new GameSession.PlayerState("P2", 1, 0, Card.stringToCards("F5"));
+        frame = encoder.encode(new GameSession.State(false, true, List.of(), List.of(p2Drew, p1)),
+                false);
+        assertEquals(PlayProtocol.STATE, frame.get());
+        state = PlayProtocol.readState(frame);
+        assertEquals(PlayProtocol.GAME_OVER, state.flags());
+        assertEquals(Set.of(1), state.players().keySet());
+        assertEquals(Card.stringToCards("F5"), state.players().get(1).hand());
+    }
+
+    @Test
+    void invalid_agent_choices_are_rejected() {
+        Game game = new Game(null, null, 0);
+        game.initGame();
+        Player p1 = game.getCurrentPlayer();
+        p1.overwriteHand(Card.stringToCards("F5 F10 S10 S10 H10"));
+        p1.setAgent(new RandomAgent(0) {
+            @Override
+            public List<Card> buildAttack(final AttackRequest request) {
+                return Card.stringToCards("S10 S10");
+            }
+
+            @Override
+            public List<Card> buildStage(final StageRequest request) {
+                return Card.stringToCards("F5 F10");
+            }
+        });
+
+        assertThrows(IllegalStateException.class, () -> game.buildAttack(p1), "Repeat weapon");
+        assertEquals("F5 F10 S10 S10 H10", p1.getHandString(), "Hand untouched");
+
+        game.setCurrentEvent(Card.of("Q2"));
+        game.setSponsor(p1);
+        assertThrows(IllegalStateException.class, game::buildAndAddStage, "Two foes");
+        assertTrue(game.viewQuestStages().isEmpty(), "No stage added");
+    }
+
     @Test
     void string_to_cards() {
         List<Card> cards = Arrays.asList(new Card(Card.CardType.FOE, "Foe", 'F', 5),
@@ -0,0 +1,47 @@
+package com.questgame;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// JMH benchmarks for playing whole games with random agents, with the text output written (to
+// nowhere) or the game set quiet; see README.md for how to run them.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+    private static final int SEEDS = 64; // Games cycled through, so no single game dominates
+
+    @Param({"text", "quiet"})
+    public String output;
+
+    private PrintWriter writer;
+    private long game;
+
+    @Setup
+    public void setup() {
+        writer = new PrintWriter(Writer.nullWriter());
+    }
+
+    @Benchmark
+    public List<Player> playGame() {
+        long seed = game++ % SEEDS;
+        Game g = new Game(null, writer, seed);
+        g.setQuiet(output.equals("quiet"));
+        g.initGame();
+
+        PlayerAgent[] agents = new PlayerAgent[g.getPlayerCount()];
+        for (int seat = 0; seat < agents.length; seat++) {
+            agents[seat] = new RandomAgent(seed * agents.length + seat);
+        }
+        g.startGameLoop(Arrays.asList(agents));
+        return g.getWinners();
+    }
+}
@@ -0,0 +1,104 @@
+package com.questgame;
+
+import jakarta.websocket.ClientEndpointConfig;
+import jakarta.websocket.ContainerProvider;
+import jakarta.websocket.Endpoint;
+import jakarta.websocket.EndpointConfig;
+import jakarta.websocket.MessageHandler;
+import jakarta.websocket.Session;
+import jakarta.websocket.WebSocketContainer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Load test for the WebSocket endpoint (see PlaySocket): opens many connections to a running
+// server, each playing its own game as fast as the server answers, and reports the frames sent and
+// received per second, overall and per core of this machine. See README.md for how to run it.
+// Every player declines to sponsor (an attack, should one come up, is an empty SELECT), so games go
+// on for as long as the test does; each prompt takes one frame to answer.
+public class PlayLoad {
+    private static final AtomicLong MESSAGES = new AtomicLong();
+    private static final AtomicLong ERRORS = new AtomicLong();
+
+    // Arguments: [URL [connections [seconds]]]
+    public static void main(final String[] args) throws Exception {
+        URI uri = URI.create(args.length > 0 ? args[0] : "ws://localhost:8080/play");
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+        List<Session> sockets = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            sockets.add(container.connectToServer(new Client(),
+                    ClientEndpointConfig.Builder.create().build(), uri));
+        }
+
+        TimeUnit.SECONDS.sleep(Math.min(5, seconds)); // Warm up
+        long start = System.nanoTime();
+        long startMessages = MESSAGES.get();
+        TimeUnit.SECONDS.sleep(seconds);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        double perSecond = (MESSAGES.get() - startMessages) / elapsed;
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%d connections, %.1f s: %.0f messages/s, %.0f messages/s per core"
+                + " (%d cores, shared with the server if it is local), %d errors%n",
+                connections, elapsed, perSecond, perSecond / cores, cores, ERRORS.get());
+        for (final Session s : sockets) {
+            s.close();
+        }
+    }
+
+    // One connection, playing one game.
+    private static class Client extends Endpoint {
+        private Session socket;
+        private String lastOutput = "";
+
+        @Override
+        public void onOpen(final Session socket, final EndpointConfig config) {
+            this.socket = socket;
+            socket.addMessageHandler(ByteBuffer.class,
+                    (MessageHandler.Whole<ByteBuffer>) this::receive);
+            send(PlayProtocol.start(0));
+        }
+
+        private void receive(final ByteBuffer frame) {
+            MESSAGES.incrementAndGet();
+            switch (frame.get()) {
+                case PlayProtocol.OUTPUT -> lastOutput = PlayProtocol.readText(frame);
+                case PlayProtocol.STATE -> answer(PlayProtocol.readState(frame));
+                case PlayProtocol.ERROR -> ERRORS.incrementAndGet();
+                default -> {
+                }
+            }
+        }
+
+        private void answer(final PlayProtocol.StateFrame state) {
+            if (!state.has(PlayProtocol.AWAITING_INPUT)) {
+                return;
+            } else if (lastOutput.contains("to the attack")) {
+                send(PlayProtocol.select(List.of()));
+            } else if (!state.menu().isEmpty()) {
+                send(PlayProtocol.text(PlayProtocol.TEXT, "1")); // Trim the first card
+            } else if (lastOutput.contains("(y/n)")) {
+                send(PlayProtocol.text(PlayProtocol.TEXT, "n"));
+            } else {
+                send(PlayProtocol.text(PlayProtocol.TEXT, ""));
+            }
+        }
+
+        private void send(final ByteBuffer frame) {
+            try {
+                socket.getBasicRemote().sendBinary(frame);
+                MESSAGES.incrementAndGet();
+            } catch (IOException e) {
+                ERRORS.incrementAndGet();
+            }
+        }
+    }
+}
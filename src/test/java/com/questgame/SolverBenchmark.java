@@ -0,0 +1,41 @@
+package com.questgame;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// JMH benchmarks for the attack and quest solvers; see README.md for how to run them.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark {
+    private Player player;
+    private int stageValue;
+
+    @Setup
+    public void setup() {
+        player = new Player(1);
+        player.overwriteHand(Card.stringToCards("F5 F15 F40 D5 S10 S10 H10 B15 L20 L20 E30"));
+        stageValue = 55;
+    }
+
+    @Benchmark
+    public List<Card> cheapestAttack() {
+        return AttackSolver.cheapestAttack(player, stageValue);
+    }
+
+    // Asked on every sponsor prompt; positions are remembered, so this is mostly lookups
+    @Benchmark
+    public boolean canSponsorQ5() {
+        return QuestSolver.canSponsor(player.getHand(), 5);
+    }
+
+    @Benchmark
+    public List<List<Card>> strongestQ4() {
+        return QuestSolver.build(player.getHand(), 4, QuestSolver.Goal.STRONGEST);
+    }
+}
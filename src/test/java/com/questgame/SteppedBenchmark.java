@@ -0,0 +1,102 @@
+package com.questgame;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// JMH benchmarks for a whole game played one decision at a time through SteppedGame, against the
+// same game run straight through; see README.md for how to run them. Each step replays its turn
+// from the start, so the gap grows with the number of decisions in a turn.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SteppedBenchmark {
+    private static final int SEEDS = 64; // Games cycled through, so no single game dominates
+
+    private List<List<SteppedGame.Action>> actions; // Decisions made in each game, by seed
+    private long game;
+
+    @Setup
+    public void setup() {
+        actions = new ArrayList<>(SEEDS);
+        for (int seed = 0; seed < SEEDS; seed++) {
+            Recorder recorder = new Recorder(new RandomAgent(seed));
+            runStraight(seed, recorder);
+            actions.add(recorder.actions);
+        }
+    }
+
+    @Benchmark
+    public List<Player> runGame() {
+        long seed = game++ % SEEDS;
+        return runStraight(seed, new RandomAgent(seed));
+    }
+
+    @Benchmark
+    public Game stepGame() {
+        int seed = (int) (game++ % SEEDS);
+        SteppedGame stepped = new SteppedGame(seed);
+        for (final SteppedGame.Action action : actions.get(seed)) {
+            stepped.apply(action);
+        }
+        return stepped.getGame();
+    }
+
+    private static List<Player> runStraight(final long seed, final PlayerAgent agent) {
+        Game g = new Game(null, null, seed);
+        g.initGame();
+        g.startGameLoop(Collections.nCopies(g.getPlayerCount(), agent));
+        return g.getWinners();
+    }
+
+    // Makes every decision with the given agent, noting each as the action that makes it.
+    private static class Recorder implements PlayerAgent {
+        private final PlayerAgent agent;
+        private final List<SteppedGame.Action> actions = new ArrayList<>();
+
+        private Recorder(final PlayerAgent agent) {
+            this.agent = agent;
+        }
+
+        @Override
+        public boolean sponsor(final SponsorRequest request) {
+            boolean sponsored = agent.sponsor(request);
+            actions.add(new SteppedGame.Action.Sponsor(sponsored));
+            return sponsored;
+        }
+
+        @Override
+        public List<Card> buildStage(final StageRequest request) {
+            List<Card> cards = agent.buildStage(request);
+            actions.add(new SteppedGame.Action.BuildStage(List.copyOf(cards)));
+            return cards;
+        }
+
+        @Override
+        public boolean withdraw(final WithdrawRequest request) {
+            boolean withdrew = agent.withdraw(request);
+            actions.add(new SteppedGame.Action.Withdraw(withdrew));
+            return withdrew;
+        }
+
+        @Override
+        public List<Card> buildAttack(final AttackRequest request) {
+            List<Card> cards = agent.buildAttack(request);
+            actions.add(new SteppedGame.Action.BuildAttack(List.copyOf(cards)));
+            return cards;
+        }
+
+        @Override
+        public Card trim(final TrimRequest request) {
+            Card card = agent.trim(request);
+            actions.add(new SteppedGame.Action.Trim(card));
+            return card;
+        }
+    }
+}